@@ -1,4 +1,5 @@
 import java.net.URI
+import net.ltgt.gradle.errorprone.errorprone
 
 plugins {
     `groovy`
@@ -7,6 +8,18 @@ plugins {
     id("com.gradle.plugin-publish") version "1.3.0"
 }
 
+sourceSets {
+    create("jmh") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+}
+
+configurations {
+    named("jmhImplementation") { extendsFrom(configurations.implementation.get()) }
+    named("jmhRuntimeOnly") { extendsFrom(configurations.runtimeOnly.get()) }
+}
+
 dependencies {
     annotationProcessor("org.immutables:value")
     compileOnly("org.immutables:value::annotations")
@@ -23,6 +36,11 @@ dependencies {
     testImplementation("org.assertj:assertj-core")
     testImplementation("org.junit.jupiter:junit-jupiter-engine")
     testImplementation("com.netflix.nebula:nebula-test")
+
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess")
+    "jmhCompileOnly"("com.jakewharton.nopen:nopen-annotations")
+    "jmhImplementation"(gradleApi())
+    "jmhImplementation"("org.openjdk.jmh:jmh-core")
 }
 
 tasks.test {
@@ -32,6 +50,23 @@ tasks.test {
     }
 }
 
+tasks.named<JavaCompile>("compileJmhJava") {
+    // the JMH annotation processor generates code that isn't expected to pass error-prone checks
+    options.errorprone.excludedPaths.set(".*/build/generated/.*")
+}
+
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs the JMH benchmarks; pass JMH options with --args, e.g. --args='VersionsProps -f 1'"
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+}
+
+tasks.check {
+    // keep benchmarks compiling without running them
+    dependsOn("jmhClasses")
+}
+
 gradlePlugin {
     website.set("https://github.com/markelliot/gradle-versions")
     vcsUrl.set("https://github.com/markelliot/gradle-versions")
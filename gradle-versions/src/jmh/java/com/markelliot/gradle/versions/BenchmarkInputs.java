@@ -0,0 +1,136 @@
+package com.markelliot.gradle.versions;
+
+import com.markelliot.gradle.versions.api.ImmutableDependencyUpdateRec;
+import com.markelliot.gradle.versions.api.ImmutableUpdateReport;
+import com.markelliot.gradle.versions.api.UpdateReport;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/** Synthetic inputs sized like those of a large monorepo. */
+public final class BenchmarkInputs {
+    public static final int PROPS_LINES = 5_000;
+    public static final int PROPS_GLOBS = 1_000;
+    public static final int REPORTS = 500;
+    public static final int UPDATES_PER_REPORT = 40;
+    public static final int PLUGINS = 30;
+
+    private BenchmarkInputs() {}
+
+    /**
+     * Returns the lines of a versions.props with {@code globs} glob patterns (half of the form
+     * {@code group:*}, half {@code group.*:*}), a comment every 100 lines, and exact identifiers
+     * for the remainder.
+     */
+    public static List<String> versionsPropsLines(int lines, int globs) {
+        List<String> result = new ArrayList<>(lines);
+        for (int i = 0; result.size() < lines; i++) {
+            if (i % 100 == 0) {
+                result.add("# section " + i / 100);
+            } else if (i < globs) {
+                result.add(glob(i) + " = 1." + i + ".0");
+            } else {
+                result.add(exact(i, globs) + " = 2.0." + i + " # pinned");
+            }
+        }
+        return result;
+    }
+
+    /** Returns the identifiers declared by {@code lines}. */
+    public static List<String> identifiers(List<String> lines) {
+        return lines.stream()
+                .filter(line -> !line.startsWith("#"))
+                .map(line -> line.substring(0, line.indexOf(' ')))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns {@code count} module identifiers to look up against {@link #versionsPropsLines},
+     * evenly split between exact matches, glob matches and identifiers matching no pattern.
+     */
+    public static List<String> lookups(int count, int lines, int globs) {
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            switch (i % 3) {
+                case 0:
+                    result.add(exact(globs + 1 + (i % (lines - globs - 1)), globs));
+                    break;
+                case 1:
+                    result.add(group(1 + i % (globs - 1)) + ":lib-" + i);
+                    break;
+                default:
+                    result.add("org.unknown" + i + ":lib-" + i);
+                    break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns {@code count} reports of {@code updatesPerReport} dependency updates each, drawn from
+     * a shared pool of modules so that reports overlap, with occasional conflicting
+     * recommendations.
+     */
+    public static List<UpdateReport> reports(int count, int updatesPerReport) {
+        List<UpdateReport> reports = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ImmutableUpdateReport.Builder report = UpdateReport.builder().project(":project-" + i);
+            for (int j = 0; j < updatesPerReport; j++) {
+                int module = (i * 7 + j * 13) % 2_000;
+                report.addDependencyUpdates(
+                        ImmutableDependencyUpdateRec.builder()
+                                .group(group(module % PROPS_GLOBS))
+                                .name("artifact-" + module)
+                                .currentVersion("1.0." + module)
+                                .latestVersion(i % 50 == 0 ? "4.0.0" : "3." + module % 7 + ".0")
+                                .build());
+            }
+            reports.add(report.build());
+        }
+        return reports;
+    }
+
+    /** Returns a build file that declares {@code plugins} plugins with specific versions. */
+    public static String buildFile(int plugins) {
+        StringBuilder content = new StringBuilder("plugins {\n");
+        for (int i = 0; i < plugins; i++) {
+            content.append(
+                    i % 2 == 0
+                            ? "    id 'com.example.plugin" + i + "' version '1.0." + i + "'\n"
+                            : "    id(\"com.example.plugin"
+                                    + i
+                                    + "\") version \"1.0."
+                                    + i
+                                    + "\"\n");
+        }
+        content.append("}\n\n");
+        for (int i = 0; i < 200; i++) {
+            content.append("dependencies { implementation 'com.example:lib").append(i);
+            content.append("' }\n");
+        }
+        return content.toString();
+    }
+
+    public static String pluginId(int i) {
+        return "com.example.plugin" + i;
+    }
+
+    /** Discards output printed by the code under benchmark. */
+    public static void silenceStdout() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    private static String group(int i) {
+        return "com.example.g" + i;
+    }
+
+    private static String glob(int i) {
+        return i % 2 == 0 ? group(i) + ":*" : group(i) + ".*:*";
+    }
+
+    private static String exact(int i, int globs) {
+        return group(i % globs) + ".sub:artifact-" + i;
+    }
+}
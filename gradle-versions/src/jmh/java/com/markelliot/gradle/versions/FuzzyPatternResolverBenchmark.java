@@ -0,0 +1,49 @@
+package com.markelliot.gradle.versions;
+
+import com.jakewharton.nopen.annotation.Open;
+import com.markelliot.gradle.versions.props.FuzzyPatternResolver;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@Open
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FuzzyPatternResolverBenchmark {
+    private FuzzyPatternResolver resolver;
+    private List<String> lookups;
+
+    @Setup
+    public void setup() {
+        List<String> lines =
+                BenchmarkInputs.versionsPropsLines(
+                        BenchmarkInputs.PROPS_LINES, BenchmarkInputs.PROPS_GLOBS);
+        resolver = new FuzzyPatternResolver(new HashSet<>(BenchmarkInputs.identifiers(lines)));
+        lookups =
+                BenchmarkInputs.lookups(
+                        1_000, BenchmarkInputs.PROPS_LINES, BenchmarkInputs.PROPS_GLOBS);
+    }
+
+    /** Resolves 1k identifiers, a third each exact matches, glob matches and misses. */
+    @Benchmark
+    public void patternFor(Blackhole blackhole) {
+        for (String identifier : lookups) {
+            blackhole.consume(resolver.patternFor(identifier));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.markelliot.gradle.versions;
+
+import com.jakewharton.nopen.annotation.Open;
+import com.markelliot.gradle.versions.api.UpdateReport;
+import com.markelliot.gradle.versions.api.YamlSerDe;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@Open
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportsBenchmark {
+    private List<UpdateReport> reports;
+    private String serializedReport;
+    private List<File> reportFiles;
+    private List<File> binaryReportFiles;
+
+    @Setup
+    public void setup() throws IOException {
+        reports =
+                BenchmarkInputs.reports(
+                        BenchmarkInputs.REPORTS, BenchmarkInputs.UPDATES_PER_REPORT);
+        serializedReport = YamlSerDe.serialize(reports.get(0));
+        Path dir = Files.createTempDirectory("reports");
+        reportFiles = new ArrayList<>();
+        binaryReportFiles = new ArrayList<>();
+        for (int i = 0; i < reports.size(); i++) {
+            File file = dir.resolve("report-" + i + ".yml").toFile();
+            YamlSerDe.serialize(file, reports.get(i));
+            file.deleteOnExit();
+            reportFiles.add(file);
+            File binaryFile = dir.resolve("report-" + i + ".bin").toFile();
+            BinaryReports.write(binaryFile, reports.get(i));
+            binaryFile.deleteOnExit();
+            binaryReportFiles.add(binaryFile);
+        }
+        dir.toFile().deleteOnExit();
+    }
+
+    @Benchmark
+    public String serializeReport() {
+        return YamlSerDe.serialize(reports.get(0));
+    }
+
+    @Benchmark
+    public UpdateReport deserializeReport() {
+        return YamlSerDe.deserialize(serializedReport, UpdateReport.class);
+    }
+
+    /** Reads and merges the dependency updates of 500 overlapping report files. */
+    @Benchmark
+    public Map<String, String> aggregateDependencyUpdates() {
+        return ReportAggregator.dependencyUpdates(reportFiles);
+    }
+
+    /** As {@link #aggregateDependencyUpdates}, from binary report files. */
+    @Benchmark
+    public Map<String, String> aggregateBinaryDependencyUpdates() {
+        return ReportAggregator.dependencyUpdates(binaryReportFiles);
+    }
+}
@@ -0,0 +1,54 @@
+package com.markelliot.gradle.versions;
+
+import com.jakewharton.nopen.annotation.Open;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@Open
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UpdatePluginsTaskBenchmark {
+    private String buildFile;
+    private Map<String, String> pluginUpdates;
+
+    @Setup
+    public void setup() {
+        buildFile = BenchmarkInputs.buildFile(BenchmarkInputs.PLUGINS);
+        pluginUpdates = new HashMap<>();
+        for (int i = 0; i < BenchmarkInputs.PLUGINS; i++) {
+            pluginUpdates.put(BenchmarkInputs.pluginId(i), "2.0." + i);
+        }
+    }
+
+    /** Updates every plugin declared by a build file, one update at a time. */
+    @Benchmark
+    public String applyUpdate() {
+        String content = buildFile;
+        for (int i = 0; i < BenchmarkInputs.PLUGINS; i++) {
+            content =
+                    UpdatePluginsTask.applyUpdate(content, BenchmarkInputs.pluginId(i), "2.0." + i);
+        }
+        return content;
+    }
+
+    /** Applies the same updates as {@link #applyUpdate} in a single pass. */
+    @Benchmark
+    public String applyUpdates() {
+        return UpdatePluginsTask.applyUpdates(buildFile, pluginUpdates);
+    }
+}
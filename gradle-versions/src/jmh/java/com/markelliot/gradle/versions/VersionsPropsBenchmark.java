@@ -0,0 +1,75 @@
+package com.markelliot.gradle.versions;
+
+import com.jakewharton.nopen.annotation.Open;
+import com.markelliot.gradle.versions.props.VersionsProps;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@Open
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VersionsPropsBenchmark {
+    private List<String> lines;
+    private List<String> lookups;
+    private VersionsProps versionsProps;
+    private int round;
+
+    @Setup
+    public void setup() {
+        BenchmarkInputs.silenceStdout();
+        lines =
+                BenchmarkInputs.versionsPropsLines(
+                        BenchmarkInputs.PROPS_LINES, BenchmarkInputs.PROPS_GLOBS);
+        lookups =
+                BenchmarkInputs.lookups(
+                        1_000, BenchmarkInputs.PROPS_LINES, BenchmarkInputs.PROPS_GLOBS);
+        versionsProps = VersionsProps.from(lines);
+    }
+
+    @Benchmark
+    public VersionsProps from() {
+        return VersionsProps.from(lines);
+    }
+
+    /** Applies 1k updates, alternating versions so that every round changes the matched lines. */
+    @Benchmark
+    public void update(Blackhole blackhole) {
+        String version = "9.9." + (round++ % 2);
+        for (String identifier : lookups) {
+            blackhole.consume(versionsProps.update(identifier, version));
+        }
+    }
+
+    /** Applies the same 1k updates as {@link #update} as a single batch. */
+    @Benchmark
+    public VersionsProps.UpdateResult updateAll() {
+        String version = "9.9." + (round++ % 2);
+        return versionsProps.updateAll(
+                lookups.stream()
+                        .collect(
+                                Collectors.toMap(
+                                        Function.identity(), unused -> version, (a, b) -> a)));
+    }
+
+    @Benchmark
+    public String writeToString() {
+        return versionsProps.writeToString();
+    }
+}
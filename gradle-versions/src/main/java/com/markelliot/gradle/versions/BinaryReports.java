@@ -0,0 +1,104 @@
+package com.markelliot.gradle.versions;
+
+import com.markelliot.gradle.versions.api.DependencyUpdateRec;
+import com.markelliot.gradle.versions.api.UpdateReport;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * A compact binary encoding of {@link UpdateReport}s, an opt-in alternative to YAML for the reports
+ * that projects publish to the root project, which is considerably cheaper to read.
+ *
+ * <p>A report is encoded as a magic number and its project, followed by its dependency and then its
+ * plugin recommendations, each as a count and then the group, name, optional current version and
+ * latest version of every recommendation.
+ */
+final class BinaryReports {
+    private static final byte[] MAGIC = {'U', 'P', 'R', '1'};
+
+    static final String DEPENDENCY_UPDATES = "dependencyUpdates";
+    static final String PLUGIN_UPDATES = "pluginUpdates";
+
+    private BinaryReports() {}
+
+    /** Receives the recommendations of a report, along with the field of the report they're in. */
+    interface RecVisitor {
+        void visit(
+                String field,
+                String group,
+                String name,
+                String currentVersion,
+                String latestVersion);
+    }
+
+    static void write(File file, UpdateReport report) {
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+            data.write(MAGIC);
+            data.writeUTF(report.project());
+            writeRecs(data, report.dependencyUpdates());
+            writeRecs(data, report.pluginUpdates());
+            data.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void writeRecs(DataOutputStream data, Set<DependencyUpdateRec> recs)
+            throws IOException {
+        data.writeInt(recs.size());
+        for (DependencyUpdateRec rec : recs) {
+            data.writeUTF(rec.group());
+            data.writeUTF(rec.name());
+            data.writeBoolean(rec.currentVersion() != null);
+            if (rec.currentVersion() != null) {
+                data.writeUTF(rec.currentVersion());
+            }
+            data.writeUTF(rec.latestVersion());
+        }
+    }
+
+    /**
+     * Returns whether {@code in} is positioned at the start of a binary report, without consuming
+     * any of it. {@code in} must support {@link InputStream#mark}.
+     */
+    static boolean isBinary(InputStream in) throws IOException {
+        in.mark(MAGIC.length);
+        byte[] magic = in.readNBytes(MAGIC.length);
+        in.reset();
+        return Arrays.equals(magic, MAGIC);
+    }
+
+    /** Reads the binary report in {@code in}, passing each recommendation to {@code visitor}. */
+    static String read(InputStream in, RecVisitor visitor) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte[] magic = new byte[MAGIC.length];
+        data.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a binary update report");
+        }
+        String project = data.readUTF();
+        readRecs(data, DEPENDENCY_UPDATES, visitor);
+        readRecs(data, PLUGIN_UPDATES, visitor);
+        return project;
+    }
+
+    private static void readRecs(DataInputStream data, String field, RecVisitor visitor)
+            throws IOException {
+        int count = data.readInt();
+        for (int i = 0; i < count; i++) {
+            String group = data.readUTF();
+            String name = data.readUTF();
+            String currentVersion = data.readBoolean() ? data.readUTF() : null;
+            visitor.visit(field, group, name, currentVersion, data.readUTF());
+        }
+    }
+}
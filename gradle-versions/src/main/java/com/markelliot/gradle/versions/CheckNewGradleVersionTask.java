@@ -1,54 +1,109 @@
 package com.markelliot.gradle.versions;
 
-import com.jakewharton.nopen.annotation.Open;
+import com.google.common.base.Preconditions;
 import com.markelliot.gradle.versions.GradleVersions.ReleaseChannel;
 import com.markelliot.gradle.versions.api.GradleUpdateRec;
 import com.markelliot.gradle.versions.api.ImmutableGradleUpdateRec;
 import com.markelliot.gradle.versions.api.ImmutableGradleUpdateReport;
+import com.markelliot.gradle.versions.api.YamlSerDe;
+import java.io.File;
+import java.time.Duration;
+import java.util.Comparator;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.gradle.api.DefaultTask;
-import org.gradle.api.Task;
-import org.gradle.api.specs.Spec;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
 import org.gradle.util.GradleVersion;
 
-@Open
-public class CheckNewGradleVersionTask extends DefaultTask {
+public abstract class CheckNewGradleVersionTask extends DefaultTask {
+
+    /** Written only when an update is available, and deleted otherwise. */
+    @OutputFile
+    abstract RegularFileProperty getReportFile();
+
+    @Internal
+    abstract Property<String> getProjectPath();
+
+    /** The version of Gradle running the build, which updates are recommended against. */
+    @Input
+    abstract Property<String> getGradleVersion();
+
+    /**
+     * Changes once the previous lookup is older than the cache ttl, so that the task is up-to-date
+     * until then.
+     */
+    @Input
+    abstract Property<String> getFreshnessKey();
+
+    @Internal
+    @Option(
+            option = "refresh-versions",
+            description = "Ignores Gradle versions cached by previous builds")
+    abstract Property<Boolean> getRefreshVersions();
+
+    @Input
+    abstract Property<String> getBaseUrl();
+
+    /** Ids of the release channels to consider, see {@link ReleaseChannel#id()}. */
+    @Input
+    abstract SetProperty<String> getReleaseChannels();
+
+    @Internal
+    abstract DirectoryProperty getCacheDir();
+
+    @Internal
+    abstract Property<Duration> getCacheTtl();
 
     public CheckNewGradleVersionTask() {
-        // always stale
-        getOutputs()
-                .upToDateWhen(
-                        new Spec<Task>() {
-                            @Override
-                            public boolean isSatisfiedBy(Task task) {
-                                return false;
-                            }
-                        });
+        getGradleVersion().convention(GradleVersion.current().getVersion());
     }
 
     @TaskAction
     public final void taskAction() {
+        File reportFile = getReportFile().getAsFile().get();
         Optional<GradleUpdateRec> gradleUpdate = getGradleUpdate();
-        gradleUpdate.ifPresent(
+        gradleUpdate.ifPresentOrElse(
                 gu -> {
                     System.out.println(
                             "A new version of Gradle is available: "
                                     + gu.currentVersion()
                                     + " -> "
                                     + gu.latestVersion());
-                    Reports.writeGradleUpdateReport(
-                            getProject().getBuildDir(),
+                    YamlSerDe.serialize(
+                            reportFile,
                             ImmutableGradleUpdateReport.builder()
-                                    .project(getProject().getPath())
+                                    .project(getProjectPath().get())
                                     .gradle(gu)
                                     .build());
-                });
+                },
+                () ->
+                        Preconditions.checkState(
+                                !reportFile.exists() || reportFile.delete(),
+                                "unable to delete gradle-report.yml"));
     }
 
     private Optional<GradleUpdateRec> getGradleUpdate() {
-        GradleVersion current = GradleVersion.current();
-        return GradleVersions.forChannel(ReleaseChannel.CURRENT)
+        GradleVersion current = GradleVersion.version(getGradleVersion().get());
+        GradleVersions gradleVersions =
+                new GradleVersions(
+                        getBaseUrl().get(),
+                        getCacheDir().getAsFile().get().toPath(),
+                        getRefreshVersions().get() ? Duration.ZERO : getCacheTtl().get());
+        Set<ReleaseChannel> channels =
+                getReleaseChannels().get().stream()
+                        .map(ReleaseChannel::fromId)
+                        .collect(Collectors.toSet());
+        return gradleVersions.forChannels(channels).values().stream()
+                .max(Comparator.comparing(v -> GradleVersion.version(v.version())))
                 .filter(v -> current.compareTo(GradleVersion.version(v.version())) < 0)
                 .map(
                         v ->
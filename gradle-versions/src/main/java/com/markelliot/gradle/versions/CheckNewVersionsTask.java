@@ -16,83 +16,211 @@
 
 package com.markelliot.gradle.versions;
 
+import com.markelliot.gradle.versions.LatestVersionsService.MetadataLookup;
 import com.markelliot.gradle.versions.api.DependencyUpdateRec;
 import com.markelliot.gradle.versions.api.ImmutableDependencyUpdateRec;
 import com.markelliot.gradle.versions.api.UpdateReport;
 import com.markelliot.gradle.versions.api.YamlSerDe;
-import java.util.Collection;
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.gradle.api.DefaultTask;
-import org.gradle.api.artifacts.ComponentSelection;
-import org.gradle.api.artifacts.Configuration;
-import org.gradle.api.artifacts.Dependency;
-import org.gradle.api.artifacts.LenientConfiguration;
-import org.gradle.api.artifacts.ResolvedDependency;
 import org.gradle.api.file.RegularFileProperty;
-import org.gradle.api.specs.Specs;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
 
+@CacheableTask
 public abstract class CheckNewVersionsTask extends DefaultTask {
-    // TODO(markelliot): make these configurable
-    private static final Set<String> DISALLOWED_QUALIFIERS =
+    private static final Set<String> DEFAULT_DISALLOWED_QUALIFIERS =
             Set.of("-alpha", "-beta", "-ea", "-rc");
 
+    /** The report published to the root project, in binary if {@link #getBinaryReport()} is set. */
     @OutputFile
     abstract RegularFileProperty getReportFile();
 
+    /** Whether {@link #getReportFile()} is written in the compact {@link BinaryReports} format. */
+    @Input
+    abstract Property<Boolean> getBinaryReport();
+
+    /** A YAML rendering of the report for people to read, written alongside a binary report. */
+    @Optional
+    @OutputFile
+    abstract RegularFileProperty getYamlReportFile();
+
+    /**
+     * The resolved {@code group:name:version} coordinates of the first-level dependencies of each
+     * eligible configuration, keyed by configuration name.
+     */
+    @Input
+    abstract MapProperty<String, List<String>> getCurrentDependencies();
+
+    /** The resolved {@code group:name:version} coordinates of the buildscript classpath. */
+    @Input
+    abstract ListProperty<String> getCurrentPlugins();
+
+    /** Versions containing any of these qualifiers are never recommended. */
+    @Input
+    abstract SetProperty<String> getDisallowedQualifiers();
+
+    /**
+     * Changes whenever previously computed latest versions should be considered stale, so that
+     * reports are reused from a prior run (or the build cache) only while they are fresh.
+     */
+    @Input
+    abstract Property<String> getFreshnessKey();
+
+    @Input
+    abstract Property<String> getProjectPath();
+
+    @Internal
+    abstract Property<String> getProjectName();
+
+    /**
+     * Looks up the latest versions of {@link #getCurrentDependencies()} while the task executes, if
+     * present.
+     */
+    @Internal
+    abstract Property<MetadataLookup> getDependencyLookup();
+
+    /**
+     * The latest version of each module in {@link #getCurrentDependencies()}, resolved with Gradle
+     * if {@link #getDependencyLookup()} is absent.
+     */
+    @Internal
+    abstract MapProperty<String, String> getLatestDependencyVersions();
+
+    /**
+     * Looks up the latest versions of {@link #getCurrentPlugins()} while the task executes, if
+     * present.
+     */
+    @Internal
+    abstract Property<MetadataLookup> getPluginLookup();
+
+    /**
+     * The latest version of each module in {@link #getCurrentPlugins()}, resolved with Gradle if
+     * {@link #getPluginLookup()} is absent.
+     */
+    @Internal
+    abstract MapProperty<String, String> getLatestPluginVersions();
+
+    /**
+     * When set, the latest versions of all modules declared by the project's configurations are
+     * resolved together in one detached configuration rather than once per configuration.
+     */
+    @Internal
+    abstract Property<Boolean> getBatchResolution();
+
+    @Internal
+    abstract Property<LatestVersionsService> getLatestVersionsService();
+
+    @Internal
+    @Option(
+            option = "refresh-versions",
+            description = "Ignores latest versions cached by previous builds")
+    abstract Property<Boolean> getRefreshVersions();
+
+    public CheckNewVersionsTask() {
+        getDisallowedQualifiers().convention(DEFAULT_DISALLOWED_QUALIFIERS);
+        getBinaryReport().convention(false);
+    }
+
+    /**
+     * Returns a freshness key that changes once every {@code ttl}, or on every invocation if {@code
+     * refresh} is set or the ttl is zero.
+     */
+    static String freshnessKey(Duration ttl, boolean refresh) {
+        if (refresh || ttl.isZero()) {
+            return "always-" + System.nanoTime();
+        }
+        return ttl + "-" + System.currentTimeMillis() / ttl.toMillis();
+    }
+
     @TaskAction
     public final void taskAction() {
         Set<DependencyUpdateRec> dependencyUpdates = getDependencyUpdates();
         Set<DependencyUpdateRec> pluginUpdates = getPluginUpdates();
 
-        YamlSerDe.serialize(
-                getReportFile().getAsFile().get(),
+        UpdateReport report =
                 UpdateReport.builder()
-                        .project(getProject().getPath())
+                        .project(getProjectPath().get())
                         .addAllDependencyUpdates(dependencyUpdates)
                         .addAllPluginUpdates(pluginUpdates)
-                        .build());
+                        .build();
+        if (getBinaryReport().get()) {
+            BinaryReports.write(getReportFile().getAsFile().get(), report);
+            if (getYamlReportFile().isPresent()) {
+                YamlSerDe.serialize(getYamlReportFile().getAsFile().get(), report);
+            }
+        } else {
+            YamlSerDe.serialize(getReportFile().getAsFile().get(), report);
+        }
     }
 
     private Set<DependencyUpdateRec> getDependencyUpdates() {
-        Map<String, Set<DependencyUpdateRec>> updatesByConfig =
-                getProject().getConfigurations().stream()
-                        // make safe for use with gradle-consistent-versions
-                        .filter(config -> !config.getName().startsWith("consistentVersions"))
-                        .filter(config -> !config.getName().equals("unifiedClasspath"))
-                        .collect(
-                                Collectors.toMap(
-                                        Configuration::getName, this::getRecsForConfiguration));
-
+        Map<String, String> latestVersions =
+                latestVersions(
+                        getDependencyLookup(),
+                        getLatestDependencyVersions(),
+                        getCurrentDependencies().get().values().stream()
+                                .flatMap(
+                                        coordinates ->
+                                                DependencyVersionResolver.versions(coordinates)
+                                                        .keySet()
+                                                        .stream())
+                                .collect(Collectors.toSet()));
         Set<DependencyUpdateRec> dependencyUpdates =
-                updatesByConfig.values().stream()
-                        .flatMap(Collection::stream)
+                getCurrentDependencies().get().values().stream()
+                        .flatMap(coordinates -> getRecs(coordinates, latestVersions).stream())
                         .collect(Collectors.toSet());
         if (!dependencyUpdates.isEmpty()) {
             System.out.println(
-                    "Dependency upgrades available for project '" + getProject().getName() + "'");
+                    "Dependency upgrades available for project '" + getProjectName().get() + "'");
             dependencyUpdates.forEach(rec -> System.out.println("   - " + render(rec)));
         }
         return dependencyUpdates;
     }
 
     private Set<DependencyUpdateRec> getPluginUpdates() {
-        Configuration pluginConfiguration =
-                getProject().getBuildscript().getConfigurations().getByName("classpath");
-        Set<DependencyUpdateRec> pluginUpdates = getRecsForConfiguration(pluginConfiguration);
+        Set<DependencyUpdateRec> pluginUpdates =
+                getRecs(
+                        getCurrentPlugins().get(),
+                        latestVersions(
+                                getPluginLookup(),
+                                getLatestPluginVersions(),
+                                DependencyVersionResolver.versions(getCurrentPlugins().get())
+                                        .keySet()));
         if (!pluginUpdates.isEmpty()) {
             System.out.println(
-                    "Plugin upgrades available for project '" + getProject().getName() + "'");
+                    "Plugin upgrades available for project '" + getProjectName().get() + "'");
             pluginUpdates.forEach(upgrade -> System.out.println("- " + render(upgrade)));
         }
         return pluginUpdates;
     }
 
+    private Map<String, String> latestVersions(
+            Property<MetadataLookup> lookup,
+            MapProperty<String, String> resolved,
+            Set<String> modules) {
+        if (!lookup.isPresent()) {
+            return resolved.get();
+        }
+        return getLatestVersionsService()
+                .get()
+                .getLatestVersions(lookup.get(), getRefreshVersions().get(), modules);
+    }
+
     private static String render(DependencyUpdateRec detail) {
         return detail.group()
                 + ":"
@@ -104,12 +232,9 @@ public abstract class CheckNewVersionsTask extends DefaultTask {
                 + "}";
     }
 
-    private Set<DependencyUpdateRec> getRecsForConfiguration(Configuration config) {
-        Map<String, ResolvedDependency> currentVersions = getCurrentDependencyVersions(config);
-        Map<String, ResolvedDependency> latestVersions =
-                getLatestDependencyVersions(config, currentVersions);
-
-        return currentVersions.entrySet().stream()
+    private static Set<DependencyUpdateRec> getRecs(
+            List<String> coordinates, Map<String, String> latestVersions) {
+        return DependencyVersionResolver.versions(coordinates).entrySet().stream()
                 .flatMap(
                         entry -> {
                             if (!latestVersions.containsKey(entry.getKey())) {
@@ -117,84 +242,20 @@ public abstract class CheckNewVersionsTask extends DefaultTask {
                                 // unresolvable new versions
                                 return Stream.empty();
                             }
-                            String currentVersion = entry.getValue().getModuleVersion();
-                            String latestVersion =
-                                    latestVersions.get(entry.getKey()).getModuleVersion();
+                            String currentVersion = entry.getValue();
+                            String latestVersion = latestVersions.get(entry.getKey());
                             if (currentVersion.equals(latestVersion)) {
                                 return Stream.empty();
                             }
+                            int separator = entry.getKey().indexOf(':');
                             return Stream.of(
                                     ImmutableDependencyUpdateRec.builder()
-                                            .group(entry.getValue().getModuleGroup())
-                                            .name(entry.getValue().getModuleName())
+                                            .group(entry.getKey().substring(0, separator))
+                                            .name(entry.getKey().substring(separator + 1))
                                             .currentVersion(currentVersion)
                                             .latestVersion(latestVersion)
                                             .build());
                         })
                 .collect(Collectors.toSet());
     }
-
-    private Map<String, ResolvedDependency> getCurrentDependencyVersions(Configuration config) {
-        Configuration resolvableOriginal = getResolvableCopy(config);
-        return getResolvedVersions(resolvableOriginal);
-    }
-
-    private Map<String, ResolvedDependency> getLatestDependencyVersions(
-            Configuration config, Map<String, ResolvedDependency> currentVersions) {
-        Configuration resolvableLatest = getResolvableCopy(config);
-
-        resolvableLatest.resolutionStrategy(
-                strat -> strat.componentSelection(rules -> rules.all(this::selectOnlyRelease)));
-
-        getLogger().debug("Checking dependencies of config {}", config.getName());
-        Set<Dependency> latestDepsForConfig =
-                currentVersions.keySet().stream()
-                        .map(
-                                key -> {
-                                    getLogger()
-                                            .debug(
-                                                    "{}: checking for newer {}",
-                                                    config.getName(),
-                                                    key);
-                                    return getProject().getDependencies().create(key + ":+");
-                                })
-                        .collect(Collectors.toSet());
-        resolvableLatest.getDependencies().clear();
-        resolvableLatest.getDependencies().addAll(latestDepsForConfig);
-        // TODO(markelliot): we may want to find a way to tweak the resolution strategy so that
-        //  forced module overrides still get a recommended upgrade
-        return getResolvedVersions(resolvableLatest);
-    }
-
-    private void selectOnlyRelease(ComponentSelection sel) {
-        String version = sel.getCandidate().getVersion();
-        if (containsDisallowedQualifier(version)) {
-            sel.reject("Component is 'alpha' or 'beta' qualified (version=" + version + ")");
-        }
-        String status = sel.getMetadata() != null ? sel.getMetadata().getStatus() : null;
-        if (status != null && !status.equals("release")) {
-            sel.reject("Component status '" + status + "' was not 'release'");
-        }
-    }
-
-    private boolean containsDisallowedQualifier(String version) {
-        return DISALLOWED_QUALIFIERS.stream().anyMatch(version::contains);
-    }
-
-    private Configuration getResolvableCopy(Configuration config) {
-        Configuration resolvableConfig = config.copyRecursive();
-        resolvableConfig.setCanBeResolved(true);
-        return resolvableConfig;
-    }
-
-    private Map<String, ResolvedDependency> getResolvedVersions(Configuration config) {
-        LenientConfiguration lenientConfig =
-                config.getResolvedConfiguration().getLenientConfiguration();
-        Set<ResolvedDependency> moduleDeps =
-                lenientConfig.getFirstLevelModuleDependencies(Specs.SATISFIES_ALL);
-        Map<String, ResolvedDependency> resolvedDeps = new HashMap<>();
-        moduleDeps.forEach(
-                dep -> resolvedDeps.put(dep.getModuleGroup() + ":" + dep.getModuleName(), dep));
-        return resolvedDeps;
-    }
 }
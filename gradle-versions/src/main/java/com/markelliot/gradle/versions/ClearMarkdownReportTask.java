@@ -2,11 +2,16 @@ package com.markelliot.gradle.versions;
 
 import org.gradle.api.DefaultTask;
 import org.gradle.api.Task;
+import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.TaskAction;
 
 public abstract class ClearMarkdownReportTask extends DefaultTask {
 
+    @Internal
+    abstract DirectoryProperty getBuildDir();
+
     public ClearMarkdownReportTask() {
         // force this task to always run
         getOutputs()
@@ -21,11 +26,6 @@ public abstract class ClearMarkdownReportTask extends DefaultTask {
 
     @TaskAction
     public final void taskAction() {
-        if (!getProject().equals(getProject().getRootProject())) {
-            getLogger().warn("Can only run updateVersionsProps on the root project");
-            return;
-        }
-
-        Reports.clearMarkdownReport(getProject().getBuildDir());
+        Reports.clearMarkdownReport(getBuildDir().getAsFile().get());
     }
 }
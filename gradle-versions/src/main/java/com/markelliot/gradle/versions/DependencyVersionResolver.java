@@ -0,0 +1,408 @@
+package com.markelliot.gradle.versions;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Sets;
+import com.markelliot.gradle.versions.LatestVersionsService.MetadataLookup;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.ArtifactRepositoryContainer;
+import org.gradle.api.artifacts.ComponentSelection;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.LenientConfiguration;
+import org.gradle.api.artifacts.ResolvedDependency;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.dsl.RepositoryHandler;
+import org.gradle.api.artifacts.repositories.ArtifactRepository;
+import org.gradle.api.artifacts.repositories.MavenArtifactRepository;
+import org.gradle.api.artifacts.repositories.UrlArtifactRepository;
+import org.gradle.api.artifacts.result.DependencyResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+import org.gradle.api.attributes.Category;
+import org.gradle.api.attributes.Usage;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.specs.Specs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves the current and latest versions of a project's dependencies and buildscript plugins.
+ *
+ * <p>Instances hold on to the {@link Project} and are only used from providers wired up at
+ * configuration time, so that {@link CheckNewVersionsTask} never touches the project while it
+ * executes and its inputs can be stored in the configuration cache.
+ */
+final class DependencyVersionResolver {
+    private static final Logger log = LoggerFactory.getLogger(DependencyVersionResolver.class);
+    private static final AtomicBoolean repositoryNameUnavailable = new AtomicBoolean();
+
+    private final Project project;
+    private final Provider<Set<String>> disallowedQualifiers;
+    private final Provider<Boolean> mavenMetadataLookup;
+    private final Provider<Boolean> sourceRepositoryOnly;
+
+    // the repositories that served the current versions of modules, by module, recorded while
+    // resolving current versions if only those repositories are to be queried for latest versions
+    private final Map<String, String> dependencySourceRepositories = new ConcurrentHashMap<>();
+    private final Map<String, String> pluginSourceRepositories = new ConcurrentHashMap<>();
+
+    DependencyVersionResolver(
+            Project project,
+            Provider<Set<String>> disallowedQualifiers,
+            Provider<Boolean> mavenMetadataLookup,
+            Provider<Boolean> sourceRepositoryOnly) {
+        this.project = project;
+        this.disallowedQualifiers = disallowedQualifiers;
+        this.mavenMetadataLookup = mavenMetadataLookup;
+        this.sourceRepositoryOnly = sourceRepositoryOnly;
+    }
+
+    /**
+     * Returns the resolved {@code group:name:version} coordinates of the first-level dependencies
+     * of each eligible configuration, keyed by configuration name.
+     */
+    Map<String, List<String>> currentDependencies() {
+        return eligibleConfigurations().stream()
+                .collect(
+                        Collectors.toMap(
+                                Configuration::getName,
+                                config ->
+                                        coordinates(
+                                                getCurrentDependencyVersions(
+                                                        config, dependencySourceRepositories))));
+    }
+
+    /** Returns the resolved {@code group:name:version} coordinates of the buildscript classpath. */
+    List<String> currentPlugins() {
+        return coordinates(
+                getCurrentDependencyVersions(getPluginConfiguration(), pluginSourceRepositories));
+    }
+
+    /**
+     * Returns a lookup of the latest versions of the project's dependencies in their {@code
+     * maven-metadata.xml}, if enabled and all of the project's repositories can be read. Must be
+     * called after {@link #currentDependencies()}.
+     */
+    Optional<MetadataLookup> dependencyLookup() {
+        return metadataLookup(project.getRepositories(), dependencySourceRepositories);
+    }
+
+    /**
+     * Returns a lookup of the latest versions of the buildscript's plugins in their {@code
+     * maven-metadata.xml}, if enabled and all of the buildscript's repositories can be read. Must
+     * be called after {@link #currentPlugins()}.
+     */
+    Optional<MetadataLookup> pluginLookup() {
+        return metadataLookup(project.getBuildscript().getRepositories(), pluginSourceRepositories);
+    }
+
+    /**
+     * Returns the latest version of each module in {@code currentDependencies} (as produced by
+     * {@link #currentDependencies()}), resolved with Gradle through {@code service}.
+     */
+    Map<String, String> latestDependencyVersions(
+            Map<String, List<String>> currentDependencies,
+            LatestVersionsService service,
+            boolean refresh,
+            boolean batch) {
+        // lookups are shared with other projects (and builds) that resolve against the same
+        // repositories with the same rejection rules, and the same resolution mode
+        String scope = lookupScope(project.getRepositories()) + (batch ? ",batch" : "");
+        Map<String, String> latestVersions = new HashMap<>();
+        if (batch) {
+            // resolve the latest version of every module declared by any configuration in a
+            // single resolution
+            Set<String> allModules =
+                    currentDependencies.values().stream()
+                            .flatMap(coordinates -> versions(coordinates).keySet().stream())
+                            .collect(Collectors.toSet());
+            latestVersions.putAll(
+                    service.getLatestVersions(
+                            scope,
+                            refresh,
+                            allModules,
+                            dependencySourceRepositories,
+                            modules -> getLatestDependencyVersions(batchConfiguration(), modules)));
+        } else {
+            currentDependencies.forEach(
+                    (configName, coordinates) -> {
+                        Configuration config = project.getConfigurations().getByName(configName);
+                        latestVersions.putAll(
+                                service.getLatestVersions(
+                                        scope,
+                                        refresh,
+                                        versions(coordinates).keySet(),
+                                        dependencySourceRepositories,
+                                        modules -> getLatestDependencyVersions(config, modules)));
+                    });
+        }
+        return latestVersions;
+    }
+
+    /**
+     * Returns the latest version of each module in {@code currentPlugins} (as produced by {@link
+     * #currentPlugins()}), resolved with Gradle through {@code service}.
+     *
+     * <p>Buildscript configurations are resolved on the calling thread, as neither the dependency
+     * handler nor configuration containers may be used concurrently.
+     */
+    Map<String, String> latestPluginVersions(
+            List<String> currentPlugins, LatestVersionsService service, boolean refresh) {
+        Configuration config = getPluginConfiguration();
+        return service.getLatestVersions(
+                lookupScope(project.getBuildscript().getRepositories()),
+                refresh,
+                versions(currentPlugins).keySet(),
+                pluginSourceRepositories,
+                missing -> getLatestDependencyVersions(config, missing));
+    }
+
+    /** Parses {@code group:name:version} strings into a map of {@code group:name} to version. */
+    static Map<String, String> versions(List<String> coordinates) {
+        return coordinates.stream()
+                .collect(
+                        Collectors.toMap(
+                                coordinate -> coordinate.substring(0, coordinate.lastIndexOf(':')),
+                                coordinate ->
+                                        coordinate.substring(coordinate.lastIndexOf(':') + 1)));
+    }
+
+    /** Renders resolved dependencies as a sorted list of {@code group:name:version} strings. */
+    private static List<String> coordinates(Map<String, ResolvedDependency> dependencies) {
+        return dependencies.entrySet().stream()
+                .map(entry -> entry.getKey() + ":" + entry.getValue().getModuleVersion())
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private List<Configuration> eligibleConfigurations() {
+        return project.getConfigurations().stream()
+                // make safe for use with gradle-consistent-versions
+                .filter(config -> !config.getName().startsWith("consistentVersions"))
+                .filter(config -> !config.getName().equals("unifiedClasspath"))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns a configuration to resolve the latest versions of all modules in, which selects their
+     * Java runtime library variant if they publish Gradle Module Metadata.
+     */
+    private Configuration batchConfiguration() {
+        Configuration config = project.getConfigurations().detachedConfiguration();
+        config.attributes(
+                attributes -> {
+                    attributes.attribute(
+                            Usage.USAGE_ATTRIBUTE,
+                            project.getObjects().named(Usage.class, Usage.JAVA_RUNTIME));
+                    attributes.attribute(
+                            Category.CATEGORY_ATTRIBUTE,
+                            project.getObjects().named(Category.class, Category.LIBRARY));
+                });
+        return config;
+    }
+
+    private Configuration getPluginConfiguration() {
+        return project.getBuildscript().getConfigurations().getByName("classpath");
+    }
+
+    private String lookupScope(RepositoryHandler repositories) {
+        return repositories.stream()
+                .map(
+                        repo ->
+                                repo instanceof UrlArtifactRepository
+                                        ? repo.getName()
+                                                + "@"
+                                                + ((UrlArtifactRepository) repo).getUrl()
+                                        : repo.getName())
+                .collect(Collectors.joining(",", "", ";" + rejectionRules()));
+    }
+
+    /**
+     * Returns a lookup of the {@code maven-metadata.xml} of modules in {@code repositories}, if
+     * enabled and all of the repositories are Maven repositories it can read. Maven local is
+     * excluded because it lists installed versions in {@code maven-metadata-local.xml} instead, and
+     * remote repositories are excluded from offline builds.
+     *
+     * <p>If only source repositories are queried, modules whose current version was served by one
+     * of the repositories are only looked up in that repository.
+     */
+    private Optional<MetadataLookup> metadataLookup(
+            RepositoryHandler repositories, Map<String, String> sourceRepositories) {
+        if (!mavenMetadataLookup.get()) {
+            return Optional.empty();
+        }
+        boolean offline = project.getGradle().getStartParameter().isOffline();
+        Map<String, URI> urls = new LinkedHashMap<>();
+        for (ArtifactRepository repo : repositories) {
+            if (!(repo instanceof MavenArtifactRepository)
+                    || repo.getName()
+                            .equals(ArtifactRepositoryContainer.DEFAULT_MAVEN_LOCAL_REPO_NAME)
+                    || !MavenMetadataVersions.supports(
+                            ((MavenArtifactRepository) repo).getUrl(), offline)) {
+                log.debug(
+                        "Resolving latest versions with Gradle, unable to read metadata from repository {}",
+                        repo.getName());
+                return Optional.empty();
+            }
+            urls.put(repo.getName(), ((MavenArtifactRepository) repo).getUrl());
+        }
+        if (urls.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(
+                ImmutableMetadataLookup.builder()
+                        .scope(lookupScope(repositories))
+                        .repositories(urls)
+                        .sourceRepositories(sourceRepositories)
+                        .disallowedQualifiers(disallowedQualifiers.get())
+                        .build());
+    }
+
+    private String rejectionRules() {
+        return "qualifiers=" + new TreeSet<>(disallowedQualifiers.get()) + ",status=release";
+    }
+
+    private Map<String, ResolvedDependency> getCurrentDependencyVersions(
+            Configuration config, Map<String, String> sourceRepositories) {
+        Configuration resolvableOriginal = getResolvableCopy(config);
+        Map<String, ResolvedDependency> resolved = getResolvedVersions(resolvableOriginal);
+        if (isSourceRepositoryOnly()) {
+            recordSourceRepositories(resolvableOriginal, sourceRepositories);
+        }
+        return resolved;
+    }
+
+    private boolean isSourceRepositoryOnly() {
+        if (!sourceRepositoryOnly.get()) {
+            return false;
+        }
+        if (!mavenMetadataLookup.get()) {
+            throw new GradleException(
+                    "updateVersions.sourceRepositoryOnly requires updateVersions.mavenMetadataLookup");
+        }
+        return true;
+    }
+
+    /** Records the repository that served each first-level module of {@code config}. */
+    private static void recordSourceRepositories(
+            Configuration config, Map<String, String> sourceRepositories) {
+        for (DependencyResult dependency :
+                config.getIncoming().getResolutionResult().getRoot().getDependencies()) {
+            if (!(dependency instanceof ResolvedDependencyResult)) {
+                continue;
+            }
+            ResolvedComponentResult component =
+                    ((ResolvedDependencyResult) dependency).getSelected();
+            if (!(component.getId() instanceof ModuleComponentIdentifier)) {
+                continue;
+            }
+            ModuleComponentIdentifier id = (ModuleComponentIdentifier) component.getId();
+            repositoryName(component)
+                    .ifPresent(
+                            name ->
+                                    sourceRepositories.putIfAbsent(
+                                            id.getGroup() + ":" + id.getModule(), name));
+        }
+    }
+
+    /**
+     * Returns the name of the repository that served {@code component}, which Gradle only exposes
+     * on its internal view of resolved components. If that view changes, the repository is unknown
+     * and the module is looked up in all repositories.
+     */
+    @VisibleForTesting
+    static Optional<String> repositoryName(ResolvedComponentResult component) {
+        try {
+            Method method = component.getClass().getMethod("getRepositoryName");
+            return Optional.ofNullable((String) method.invoke(component));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            if (!repositoryNameUnavailable.getAndSet(true)) {
+                log.warn(
+                        "Unable to determine the repositories that served modules with this version of Gradle, looking up latest versions in all repositories");
+            }
+            log.debug("Unable to determine the repository of {}", component, e);
+            return Optional.empty();
+        }
+    }
+
+    private Map<String, String> getLatestDependencyVersions(
+            Configuration config, Set<String> modules) {
+        Configuration resolvableLatest = getResolvableCopy(config);
+
+        resolvableLatest.resolutionStrategy(
+                strat -> strat.componentSelection(rules -> rules.all(this::selectOnlyRelease)));
+
+        log.debug("Checking dependencies of config {}", config.getName());
+        Set<Dependency> latestDepsForConfig =
+                modules.stream()
+                        .map(
+                                key -> {
+                                    log.debug("{}: checking for newer {}", config.getName(), key);
+                                    return project.getDependencies().create(key + ":+");
+                                })
+                        .collect(Collectors.toSet());
+        resolvableLatest.getDependencies().clear();
+        resolvableLatest.getDependencies().addAll(latestDepsForConfig);
+        // TODO(markelliot): we may want to find a way to tweak the resolution strategy so that
+        //  forced module overrides still get a recommended upgrade
+        Map<String, String> latestVersions =
+                getResolvedVersions(resolvableLatest).entrySet().stream()
+                        .collect(
+                                Collectors.toMap(
+                                        Map.Entry::getKey,
+                                        entry -> entry.getValue().getModuleVersion()));
+        Set<String> unresolved = Sets.difference(modules, latestVersions.keySet());
+        if (!unresolved.isEmpty()) {
+            log.info(
+                    "Unable to resolve the latest versions of {} in config {}",
+                    unresolved,
+                    config.getName());
+        }
+        return latestVersions;
+    }
+
+    private void selectOnlyRelease(ComponentSelection sel) {
+        String version = sel.getCandidate().getVersion();
+        if (containsDisallowedQualifier(version)) {
+            sel.reject("Component is 'alpha' or 'beta' qualified (version=" + version + ")");
+        }
+        String status = sel.getMetadata() != null ? sel.getMetadata().getStatus() : null;
+        if (status != null && !status.equals("release")) {
+            sel.reject("Component status '" + status + "' was not 'release'");
+        }
+    }
+
+    private boolean containsDisallowedQualifier(String version) {
+        return disallowedQualifiers.get().stream().anyMatch(version::contains);
+    }
+
+    private static Configuration getResolvableCopy(Configuration config) {
+        Configuration resolvableConfig = config.copyRecursive();
+        resolvableConfig.setCanBeResolved(true);
+        return resolvableConfig;
+    }
+
+    private static Map<String, ResolvedDependency> getResolvedVersions(Configuration config) {
+        LenientConfiguration lenientConfig =
+                config.getResolvedConfiguration().getLenientConfiguration();
+        Set<ResolvedDependency> moduleDeps =
+                lenientConfig.getFirstLevelModuleDependencies(Specs.SATISFIES_ALL);
+        Map<String, ResolvedDependency> resolvedDeps = new HashMap<>();
+        moduleDeps.forEach(
+                dep -> resolvedDeps.put(dep.getModuleGroup() + ":" + dep.getModuleName(), dep));
+        return resolvedDeps;
+    }
+}
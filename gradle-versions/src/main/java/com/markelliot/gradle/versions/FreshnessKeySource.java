@@ -0,0 +1,41 @@
+package com.markelliot.gradle.versions;
+
+import java.time.Duration;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.provider.ValueSource;
+import org.gradle.api.provider.ValueSourceParameters;
+
+/**
+ * Computes {@link CheckNewVersionsTask#freshnessKey(Duration, boolean)} as a value source. Used as
+ * a task input, it keeps the version check tasks up-to-date for at most the configured ttl.
+ *
+ * <p>Value sources only invalidate a cached configuration if they are obtained while it is
+ * computed, so {@code checkNewVersions} reads its key while resolving latest versions with Gradle.
+ * A new key then invalidates the cached configuration, and with it the latest versions resolved
+ * while storing it; a key that is only read as a task input would not.
+ */
+public abstract class FreshnessKeySource implements ValueSource<String, FreshnessKeySource.Params> {
+    public interface Params extends ValueSourceParameters {
+        Property<Duration> getCacheTtl();
+
+        Property<Boolean> getRefresh();
+    }
+
+    static Provider<String> of(
+            ProviderFactory providers, Provider<Duration> ttl, Provider<Boolean> refresh) {
+        return providers.of(
+                FreshnessKeySource.class,
+                spec -> {
+                    spec.getParameters().getCacheTtl().set(ttl);
+                    spec.getParameters().getRefresh().set(refresh);
+                });
+    }
+
+    @Override
+    public String obtain() {
+        return CheckNewVersionsTask.freshnessKey(
+                getParameters().getCacheTtl().get(), getParameters().getRefresh().get());
+    }
+}
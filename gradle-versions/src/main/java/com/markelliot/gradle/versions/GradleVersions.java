@@ -4,23 +4,61 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.google.common.annotations.VisibleForTesting;
 import com.markelliot.gradle.versions.api.JsonSerDe;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import org.immutables.value.Value;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Looks up the latest Gradle releases from the services.gradle.org versions API (or a stand-in
+ * served at a different base URL), caching responses on disk.
+ */
 public final class GradleVersions {
+    public static final String DEFAULT_BASE_URL = "https://services.gradle.org/versions/";
 
     private static final Logger log = LoggerFactory.getLogger(GradleVersions.class);
 
-    private GradleVersions() {}
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final HttpClient CLIENT =
+            HttpClient.newBuilder()
+                    .connectTimeout(CONNECT_TIMEOUT)
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .build();
+
+    private final URI baseUri;
+    private final Path cacheDir;
+    private final Duration ttl;
+    private final Clock clock;
+
+    public GradleVersions(String baseUrl, Path cacheDir, Duration ttl) {
+        this(baseUrl, cacheDir, ttl, Clock.systemUTC());
+    }
+
+    @VisibleForTesting
+    GradleVersions(String baseUrl, Path cacheDir, Duration ttl, Clock clock) {
+        this.baseUri = URI.create(baseUrl.endsWith("/") ? baseUrl : baseUrl + "/");
+        this.cacheDir = cacheDir;
+        this.ttl = ttl;
+        this.clock = clock;
+    }
 
     public enum ReleaseChannel {
         CURRENT("current"),
@@ -37,33 +75,161 @@ public final class GradleVersions {
         public String id() {
             return id;
         }
+
+        public static ReleaseChannel fromId(String id) {
+            for (ReleaseChannel channel : values()) {
+                if (channel.id.equals(id)) {
+                    return channel;
+                }
+            }
+            throw new IllegalArgumentException("Unknown Gradle release channel '" + id + "'");
+        }
+    }
+
+    /**
+     * Returns the latest release of {@code channel}, or empty if it could not be determined. See
+     * {@link #forChannels(Set)}.
+     */
+    public Optional<GradleChannelDetails> forChannel(ReleaseChannel channel) {
+        return Optional.ofNullable(forChannels(Set.of(channel)).get(channel));
+    }
+
+    /**
+     * Returns the latest release of each of {@code channels} that could be determined, fetching
+     * channels concurrently.
+     *
+     * <p>Responses younger than the cache time-to-live are served from the cache directory without
+     * contacting the server; older ones are revalidated with a conditional request, and are used
+     * as-is if the server cannot be reached.
+     */
+    public Map<ReleaseChannel, GradleChannelDetails> forChannels(Set<ReleaseChannel> channels) {
+        Map<ReleaseChannel, CompletableFuture<Optional<GradleChannelDetails>>> lookups =
+                new EnumMap<>(ReleaseChannel.class);
+        channels.forEach(channel -> lookups.put(channel, fetch(channel)));
+
+        Map<ReleaseChannel, GradleChannelDetails> details = new EnumMap<>(ReleaseChannel.class);
+        lookups.forEach((channel, lookup) -> lookup.join().ifPresent(d -> details.put(channel, d)));
+        return details;
     }
 
-    public static Optional<GradleChannelDetails> forChannel(ReleaseChannel channel) {
-        HttpClient client = HttpClient.newHttpClient();
-        HttpRequest req =
+    private CompletableFuture<Optional<GradleChannelDetails>> fetch(ReleaseChannel channel) {
+        Path cacheFile = cacheDir.resolve(channel.id() + ".json");
+        Optional<CachedResponse> cached = readCache(cacheFile);
+        if (cached.isPresent()
+                && Duration.between(cached.get().fetchedAt(), clock.instant()).compareTo(ttl) < 0) {
+            return CompletableFuture.completedFuture(parse(channel, cached.get().body()));
+        }
+
+        HttpRequest.Builder req =
                 HttpRequest.newBuilder()
-                        .uri(URI.create("https://services.gradle.org/versions/" + channel.id()))
-                        .GET()
-                        .build();
-        HttpResponse<String> resp;
+                        .uri(baseUri.resolve(channel.id()))
+                        .timeout(REQUEST_TIMEOUT)
+                        .GET();
+        cached.flatMap(CachedResponse::etag).ifPresent(etag -> req.header("If-None-Match", etag));
+        cached.flatMap(CachedResponse::lastModified)
+                .ifPresent(lastModified -> req.header("If-Modified-Since", lastModified));
+        return CLIENT.sendAsync(req.build(), BodyHandlers.ofString())
+                .handle(
+                        (resp, error) -> {
+                            if (error != null) {
+                                if (cached.isPresent()) {
+                                    log.warn(
+                                            "Unable to fetch the latest version of Gradle for channel {}, using cached result",
+                                            channel,
+                                            error);
+                                    return parse(channel, cached.get().body());
+                                }
+                                log.error(
+                                        "An error occurred while fetching the latest version of Gradle for channel {}",
+                                        channel,
+                                        error);
+                                return Optional.empty();
+                            }
+                            if (resp.statusCode() == 304 && cached.isPresent()) {
+                                writeCache(
+                                        cacheFile,
+                                        ImmutableCachedResponse.builder()
+                                                .from(cached.get())
+                                                .fetchedAt(clock.instant())
+                                                .build());
+                                return parse(channel, cached.get().body());
+                            }
+                            if (resp.statusCode() != 200) {
+                                log.error(
+                                        "An error occurred while fetching the latest version of Gradle for channel {}: {}",
+                                        channel,
+                                        resp);
+                                return Optional.empty();
+                            }
+                            writeCache(
+                                    cacheFile,
+                                    ImmutableCachedResponse.builder()
+                                            .body(resp.body())
+                                            .etag(resp.headers().firstValue("ETag"))
+                                            .lastModified(
+                                                    resp.headers().firstValue("Last-Modified"))
+                                            .fetchedAt(clock.instant())
+                                            .build());
+                            return parse(channel, resp.body());
+                        });
+    }
+
+    private static Optional<GradleChannelDetails> parse(ReleaseChannel channel, String body) {
         try {
-            resp = client.send(req, BodyHandlers.ofString());
-        } catch (IOException | InterruptedException e) {
-            log.error(
-                    "An error occurred while fetching the latest version of Gradle for channel {}",
-                    channel,
-                    e);
+            return Optional.of(JsonSerDe.deserialize(body, GradleChannelDetails.class));
+        } catch (IllegalStateException e) {
+            // e.g. the release-candidate channel when there is no active release candidate
+            log.debug("No release available for Gradle channel {}", channel, e);
             return Optional.empty();
         }
-        if (resp.statusCode() != 200) {
-            log.error(
-                    "An error occurred while fetching the latest version of Gradle for channel {}: {}",
-                    channel,
-                    resp);
+    }
+
+    private static Optional<CachedResponse> readCache(Path cacheFile) {
+        if (!Files.exists(cacheFile)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(JsonSerDe.deserialize(cacheFile, CachedResponse.class));
+        } catch (IllegalStateException e) {
+            log.debug("Ignoring unreadable Gradle version cache {}", cacheFile, e);
             return Optional.empty();
         }
-        return Optional.of(JsonSerDe.deserialize(resp.body(), GradleChannelDetails.class));
+    }
+
+    private static void writeCache(Path cacheFile, CachedResponse response) {
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path tmp =
+                    Files.createTempFile(
+                            cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp");
+            try {
+                Files.writeString(tmp, JsonSerDe.serialize(response));
+                Files.move(
+                        tmp,
+                        cacheFile,
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                // only left behind if writing or moving it failed
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            log.warn("Unable to write Gradle version cache {}", cacheFile, e);
+        }
+    }
+
+    @Value.Immutable
+    @JsonDeserialize(as = ImmutableCachedResponse.class)
+    @JsonSerialize(as = ImmutableCachedResponse.class)
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    interface CachedResponse {
+        String body();
+
+        Optional<String> etag();
+
+        Optional<String> lastModified();
+
+        Instant fetchedAt();
     }
 
     @Value.Immutable
@@ -0,0 +1,69 @@
+package com.markelliot.gradle.versions;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Memoizes the latest available version of {@code group:name} modules so that each module is
+ * resolved for its latest version at most once, regardless of how many configurations (or projects)
+ * declare it.
+ *
+ * <p>Safe for concurrent use: when several callers ask for the same module at once, the first
+ * caller resolves it and the others wait on that single lookup.
+ */
+final class LatestVersionCache {
+    private final ConcurrentMap<String, CompletableFuture<Optional<String>>> latestVersions =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Returns the latest version of each of the requested modules, invoking {@code resolver} only
+     * with the modules that have not been looked up before (or are not being looked up by another
+     * caller). Modules without a resolvable latest version are omitted from the result (and are not
+     * looked up again).
+     */
+    Map<String, String> getLatestVersions(
+            Set<String> modules, Function<Set<String>, Map<String, String>> resolver) {
+        Map<String, CompletableFuture<Optional<String>>> lookups = new HashMap<>();
+        Map<String, CompletableFuture<Optional<String>>> claimed = new HashMap<>();
+        for (String module : modules) {
+            CompletableFuture<Optional<String>> lookup = new CompletableFuture<>();
+            CompletableFuture<Optional<String>> existing =
+                    latestVersions.putIfAbsent(module, lookup);
+            if (existing == null) {
+                claimed.put(module, lookup);
+                lookups.put(module, lookup);
+            } else {
+                lookups.put(module, existing);
+            }
+        }
+
+        if (!claimed.isEmpty()) {
+            try {
+                Map<String, String> resolved = resolver.apply(claimed.keySet());
+                claimed.forEach(
+                        (module, lookup) ->
+                                lookup.complete(Optional.ofNullable(resolved.get(module))));
+            } catch (RuntimeException e) {
+                // forget failed lookups so that a later caller may retry them
+                claimed.forEach(
+                        (module, lookup) -> {
+                            latestVersions.remove(module, lookup);
+                            lookup.completeExceptionally(e);
+                        });
+                throw e;
+            }
+        }
+
+        Map<String, String> result = new HashMap<>();
+        lookups.forEach(
+                (module, lookup) ->
+                        lookup.join().ifPresent(version -> result.put(module, version)));
+        return result;
+    }
+}
@@ -0,0 +1,193 @@
+package com.markelliot.gradle.versions;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A persistent, on-disk record of latest-version lookups keyed by scope (the repositories and
+ * rejection rules a lookup was made with) and {@code group:name} module, so that lookups can be
+ * reused across builds until they are older than the configured time-to-live.
+ *
+ * <p>Lookups that found no latest version expire sooner, as resolution is lenient and a repository
+ * that timed out or failed also finds none; a transient failure should not hide upgrades for long.
+ *
+ * <p>Entries are stored in a compact binary format, grouped by scope. The file is only ever
+ * replaced atomically, and concurrent builds merge their results into it under a file lock.
+ */
+final class LatestVersionStore {
+    private static final Logger log = LoggerFactory.getLogger(LatestVersionStore.class);
+
+    private static final int MAGIC = 0x4c565331; // LVS1
+    private static final Duration NOT_FOUND_TTL = Duration.ofMinutes(5);
+
+    private final Path path;
+    private final Duration ttl;
+    private final Clock clock;
+    private final Map<String, Map<String, Entry>> persisted;
+    private final ConcurrentMap<String, ConcurrentMap<String, Entry>> updates =
+            new ConcurrentHashMap<>();
+
+    private LatestVersionStore(Path path, Duration ttl, Clock clock) {
+        this.path = path;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.persisted = read(path);
+    }
+
+    static LatestVersionStore load(Path path, Duration ttl) {
+        return load(path, ttl, Clock.systemUTC());
+    }
+
+    static LatestVersionStore load(Path path, Duration ttl, Clock clock) {
+        return new LatestVersionStore(path, ttl, clock);
+    }
+
+    /**
+     * Returns the stored result of looking up {@code module} in {@code scope} if one exists and has
+     * not expired. A present but empty inner value records that no latest version was found.
+     */
+    Optional<Optional<String>> get(String scope, String module) {
+        Entry entry = persisted.getOrDefault(scope, Map.of()).get(module);
+        if (entry == null || isExpired(entry)) {
+            return Optional.empty();
+        }
+        return Optional.of(Optional.ofNullable(entry.version));
+    }
+
+    void put(String scope, String module, Optional<String> version) {
+        updates.computeIfAbsent(scope, unused -> new ConcurrentHashMap<>())
+                .put(module, new Entry(version.orElse(null), clock.millis()));
+    }
+
+    /**
+     * Merges the lookups recorded by this instance into the file on disk, dropping expired entries.
+     */
+    void flush() {
+        if (updates.isEmpty()) {
+            return;
+        }
+        try {
+            Files.createDirectories(path.getParent());
+            Path lockFile = path.resolveSibling(path.getFileName() + ".lock");
+            try (FileChannel channel =
+                            FileChannel.open(
+                                    lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    FileLock unused = channel.lock()) {
+                // re-read so that results written by concurrent builds are kept
+                Map<String, Map<String, Entry>> merged = read(path);
+                updates.forEach(
+                        (scope, entries) ->
+                                merged.computeIfAbsent(scope, s -> new HashMap<>())
+                                        .putAll(entries));
+                merged.values().forEach(entries -> entries.values().removeIf(this::isExpired));
+                merged.values().removeIf(Map::isEmpty);
+
+                Path tmp =
+                        Files.createTempFile(
+                                path.getParent(), path.getFileName().toString(), ".tmp");
+                try {
+                    try (OutputStream out = Files.newOutputStream(tmp)) {
+                        write(merged, out);
+                    }
+                    Files.move(
+                            tmp,
+                            path,
+                            StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    // only left behind if writing or moving it failed
+                    Files.deleteIfExists(tmp);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Unable to write latest version cache to {}", path, e);
+        }
+    }
+
+    private boolean isExpired(Entry entry) {
+        Duration entryTtl =
+                entry.version == null && NOT_FOUND_TTL.compareTo(ttl) < 0 ? NOT_FOUND_TTL : ttl;
+        return clock.millis() - entry.fetchedAt >= entryTtl.toMillis();
+    }
+
+    private static Map<String, Map<String, Entry>> read(Path path) {
+        Map<String, Map<String, Entry>> entries = new HashMap<>();
+        if (!Files.exists(path)) {
+            return entries;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+            if (data.readInt() != MAGIC) {
+                log.debug("Ignoring latest version cache {} with unknown format", path);
+                return entries;
+            }
+            int scopes = data.readInt();
+            for (int i = 0; i < scopes; i++) {
+                String scope = data.readUTF();
+                int count = data.readInt();
+                Map<String, Entry> scopeEntries = new HashMap<>(count * 2);
+                for (int j = 0; j < count; j++) {
+                    String module = data.readUTF();
+                    long fetchedAt = data.readLong();
+                    String version = data.readBoolean() ? data.readUTF() : null;
+                    scopeEntries.put(module, new Entry(version, fetchedAt));
+                }
+                entries.put(scope, scopeEntries);
+            }
+            return entries;
+        } catch (IOException e) {
+            log.debug("Ignoring unreadable latest version cache {}", path, e);
+            return new HashMap<>();
+        }
+    }
+
+    private static void write(Map<String, Map<String, Entry>> entries, OutputStream out)
+            throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(entries.size());
+        for (Map.Entry<String, Map<String, Entry>> scope : entries.entrySet()) {
+            data.writeUTF(scope.getKey());
+            data.writeInt(scope.getValue().size());
+            for (Map.Entry<String, Entry> entry : scope.getValue().entrySet()) {
+                data.writeUTF(entry.getKey());
+                data.writeLong(entry.getValue().fetchedAt);
+                data.writeBoolean(entry.getValue().version != null);
+                if (entry.getValue().version != null) {
+                    data.writeUTF(entry.getValue().version);
+                }
+            }
+        }
+        data.flush();
+    }
+
+    private static final class Entry {
+        private final String version;
+        private final long fetchedAt;
+
+        Entry(String version, long fetchedAt) {
+            this.version = version;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.markelliot.gradle.versions;
+
+import com.google.common.collect.Sets;
+import java.io.File;
+import java.io.Serializable;
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.gradle.api.Project;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.immutables.value.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A build-scoped service that shares latest-version lookups between the {@code checkNewVersions}
+ * tasks of all projects, so that a module used throughout a multi-project build is looked up once
+ * per build rather than once per project.
+ *
+ * <p>Lookups are additionally persisted to a {@link LatestVersionStore} and reused by later builds
+ * until they are older than the configured time-to-live.
+ *
+ * <p>Lookups in {@code maven-metadata.xml} are described by a {@link MetadataLookup} while the
+ * build is configured and performed by the service while {@code checkNewVersions} executes, so that
+ * they are skipped along with the task and never stored in the configuration cache.
+ */
+public abstract class LatestVersionsService
+        implements BuildService<LatestVersionsService.Params>, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(LatestVersionsService.class);
+    private static final String NAME = "com.markelliot.versions.latestVersions";
+
+    public interface Params extends BuildServiceParameters {
+        RegularFileProperty getCacheFile();
+
+        Property<Duration> getCacheTtl();
+
+        Property<Integer> getMaxRequestsPerHost();
+    }
+
+    /** A lookup of latest versions in the {@code maven-metadata.xml} of Maven repositories. */
+    @Value.Immutable
+    interface MetadataLookup extends Serializable {
+        /** The scope that the lookup's results are shared and persisted under. */
+        String scope();
+
+        /** The repositories to read, by name, in the order they are declared. */
+        Map<String, URI> repositories();
+
+        /**
+         * The name of the repository that served the current version of each module, if only that
+         * repository is to be read for the module.
+         */
+        Map<String, String> sourceRepositories();
+
+        Set<String> disallowedQualifiers();
+    }
+
+    private final ConcurrentMap<String, LatestVersionCache> caches = new ConcurrentHashMap<>();
+    private volatile LatestVersionStore store;
+    private volatile RepositoryRequests repositoryRequests;
+
+    /**
+     * Returns the latest version of each of the requested modules when resolved against {@code
+     * scope}, typically a description of the repositories and rejection rules used for the lookup.
+     * Only modules that have neither been looked up in this build nor have an unexpired persisted
+     * result are passed to {@code resolver}; {@code refresh} ignores persisted results.
+     */
+    Map<String, String> getLatestVersions(
+            String scope,
+            boolean refresh,
+            Set<String> modules,
+            Function<Set<String>, Map<String, String>> resolver) {
+        LatestVersionCache cache =
+                caches.computeIfAbsent(scope, unused -> new LatestVersionCache());
+        if (getParameters().getCacheTtl().get().isZero()) {
+            return cache.getLatestVersions(modules, resolver);
+        }
+        return cache.getLatestVersions(
+                modules,
+                missing -> {
+                    LatestVersionStore store = store();
+                    Map<String, String> latestVersions = new HashMap<>();
+                    Set<String> unresolved = new HashSet<>();
+                    for (String module : missing) {
+                        store.get(scope, module)
+                                .filter(unused -> !refresh)
+                                .ifPresentOrElse(
+                                        persisted ->
+                                                persisted.ifPresent(
+                                                        version ->
+                                                                latestVersions.put(
+                                                                        module, version)),
+                                        () -> unresolved.add(module));
+                    }
+                    if (!unresolved.isEmpty()) {
+                        Map<String, String> resolved = resolver.apply(unresolved);
+                        unresolved.forEach(
+                                module ->
+                                        store.put(
+                                                scope,
+                                                module,
+                                                Optional.ofNullable(resolved.get(module))));
+                        latestVersions.putAll(resolved);
+                    }
+                    return latestVersions;
+                });
+    }
+
+    /**
+     * Returns the latest version of each of {@code modules} (as {@code group:name}) that {@code
+     * lookup} determines, which reads the modules' metadata on the build's {@link
+     * #repositoryRequests()}. Modules whose metadata could not be read, for example because a
+     * repository requires credentials, are omitted.
+     */
+    Map<String, String> getLatestVersions(
+            MetadataLookup lookup, boolean refresh, Set<String> modules) {
+        Map<String, URI> moduleRepositories = new HashMap<>();
+        lookup.sourceRepositories()
+                .forEach(
+                        (module, repoName) -> {
+                            URI url = lookup.repositories().get(repoName);
+                            if (url != null) {
+                                moduleRepositories.put(module, url);
+                            }
+                        });
+        MavenMetadataVersions metadataVersions =
+                new MavenMetadataVersions(
+                        List.copyOf(lookup.repositories().values()),
+                        moduleRepositories,
+                        lookup.disallowedQualifiers(),
+                        repositoryRequests());
+        return getLatestVersions(
+                lookup.scope(),
+                refresh,
+                modules,
+                lookup.sourceRepositories(),
+                missing -> {
+                    Map<String, Optional<String>> found = metadataVersions.latestVersions(missing);
+                    Set<String> unresolved = Sets.difference(missing, found.keySet());
+                    if (!unresolved.isEmpty()) {
+                        log.warn(
+                                "Unable to read the latest versions of {} from {}",
+                                unresolved,
+                                lookup.repositories().keySet());
+                    }
+                    Map<String, String> latestVersions = new HashMap<>();
+                    found.forEach(
+                            (module, version) ->
+                                    version.ifPresent(v -> latestVersions.put(module, v)));
+                    return latestVersions;
+                });
+    }
+
+    /**
+     * Like {@link #getLatestVersions(String, boolean, Set, Function)}, but looks up the modules
+     * served by each of {@code sourceRepositories} under their own scope, so that cached latest
+     * versions are not reused once a module is served by a different repository.
+     */
+    Map<String, String> getLatestVersions(
+            String scope,
+            boolean refresh,
+            Set<String> modules,
+            Map<String, String> sourceRepositories,
+            Function<Set<String>, Map<String, String>> resolver) {
+        Map<Optional<String>, Set<String>> modulesBySource =
+                modules.stream()
+                        .collect(
+                                Collectors.groupingBy(
+                                        module ->
+                                                Optional.ofNullable(sourceRepositories.get(module)),
+                                        Collectors.toSet()));
+        Map<String, String> latestVersions = new HashMap<>();
+        modulesBySource.forEach(
+                (source, sourceModules) ->
+                        latestVersions.putAll(
+                                getLatestVersions(
+                                        source.map(name -> scope + ",source=" + name).orElse(scope),
+                                        refresh,
+                                        sourceModules,
+                                        resolver)));
+        return latestVersions;
+    }
+
+    /**
+     * Returns the build's runner of repository metadata requests, which allows at most the
+     * configured number of concurrent requests per repository host.
+     */
+    RepositoryRequests repositoryRequests() {
+        if (repositoryRequests == null) {
+            synchronized (this) {
+                if (repositoryRequests == null) {
+                    repositoryRequests =
+                            new RepositoryRequests(getParameters().getMaxRequestsPerHost().get());
+                }
+            }
+        }
+        return repositoryRequests;
+    }
+
+    private LatestVersionStore store() {
+        if (store == null) {
+            synchronized (this) {
+                if (store == null) {
+                    store =
+                            LatestVersionStore.load(
+                                    getParameters().getCacheFile().get().getAsFile().toPath(),
+                                    getParameters().getCacheTtl().get());
+                }
+            }
+        }
+        return store;
+    }
+
+    @Override
+    public void close() {
+        if (repositoryRequests != null) {
+            repositoryRequests.close();
+        }
+        if (store != null) {
+            store.flush();
+        }
+    }
+
+    static Provider<LatestVersionsService> register(
+            Project project, UpdateVersionsExtension extension) {
+        File cacheFile =
+                new File(
+                        project.getGradle().getGradleUserHomeDir(),
+                        "caches/com.markelliot.versions/latest-versions.bin");
+        return project.getGradle()
+                .getSharedServices()
+                .registerIfAbsent(
+                        NAME,
+                        LatestVersionsService.class,
+                        spec -> {
+                            spec.getParameters().getCacheFile().set(cacheFile);
+                            spec.getParameters().getCacheTtl().set(extension.getCacheTtl());
+                            spec.getParameters()
+                                    .getMaxRequestsPerHost()
+                                    .set(extension.getMaxRequestsPerHost());
+                        });
+    }
+}
@@ -0,0 +1,55 @@
+package com.markelliot.gradle.versions;
+
+import com.markelliot.gradle.versions.api.ReportSection;
+import java.util.ArrayList;
+import java.util.List;
+import org.gradle.api.Project;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * A build-scoped service that collects the sections of the markdown report contributed by the
+ * update tasks, and appends them to the report (and its JSON twin) once, when the build finishes.
+ *
+ * <p>Sections are added whole, so tasks running in parallel never interleave their output.
+ */
+public abstract class MarkdownReportService
+        implements BuildService<MarkdownReportService.Params>, AutoCloseable {
+    private static final String NAME = "com.markelliot.versions.markdownReport";
+
+    public interface Params extends BuildServiceParameters {
+        /** The root project's build directory. */
+        DirectoryProperty getBuildDir();
+    }
+
+    private final List<ReportSection> sections = new ArrayList<>();
+
+    /** Adds {@code section} to the report, unless it has no entries. */
+    synchronized void addSection(ReportSection section) {
+        if (!section.entries().isEmpty()) {
+            sections.add(section);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!sections.isEmpty()) {
+            Reports.appendToMarkdownReport(
+                    getParameters().getBuildDir().get().getAsFile(), List.copyOf(sections));
+        }
+    }
+
+    static Provider<MarkdownReportService> register(Project project) {
+        return project.getGradle()
+                .getSharedServices()
+                .registerIfAbsent(
+                        NAME,
+                        MarkdownReportService.class,
+                        spec ->
+                                spec.getParameters()
+                                        .getBuildDir()
+                                        .set(project.getLayout().getBuildDirectory()));
+    }
+}
@@ -0,0 +1,322 @@
+package com.markelliot.gradle.versions;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Looks up the latest versions of modules by reading the {@code maven-metadata.xml} that Maven
+ * repositories publish for each module, an alternative to resolving {@code group:name:+} with
+ * Gradle that avoids fetching and evaluating the metadata of every candidate version.
+ *
+ * <p>Versions listed by any of the repositories are candidates. Those containing a disallowed
+ * qualifier, and snapshots (which Gradle gives an {@code integration} status), are rejected, and
+ * the highest remaining version is chosen using Gradle's version ordering.
+ *
+ * <p>A module is only considered looked up if every repository either listed its versions or does
+ * not have it, so that a repository that could not be read (for example because it requires
+ * credentials) never hides a newer version.
+ */
+final class MavenMetadataVersions {
+    private static final Logger log = LoggerFactory.getLogger(MavenMetadataVersions.class);
+
+    private static final String METADATA_FILE = "maven-metadata.xml";
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final HttpClient CLIENT =
+            HttpClient.newBuilder()
+                    .connectTimeout(CONNECT_TIMEOUT)
+                    // multiplexes concurrent requests to a host over a single connection
+                    .version(HttpClient.Version.HTTP_2)
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .build();
+    private static final XMLInputFactory XML_INPUT_FACTORY = newXmlInputFactory();
+
+    private final List<URI> repositories;
+    private final Map<String, URI> moduleRepositories;
+    private final Set<String> disallowedQualifiers;
+    private final RepositoryRequests requests;
+
+    /**
+     * Creates a lookup against {@code repositories}, which issues its requests on {@code requests}.
+     * Modules with an entry in {@code moduleRepositories} are only looked up in that repository.
+     */
+    MavenMetadataVersions(
+            List<URI> repositories,
+            Map<String, URI> moduleRepositories,
+            Set<String> disallowedQualifiers,
+            RepositoryRequests requests) {
+        this.repositories = List.copyOf(repositories);
+        this.moduleRepositories = Map.copyOf(moduleRepositories);
+        this.disallowedQualifiers = Set.copyOf(disallowedQualifiers);
+        this.requests = requests;
+    }
+
+    /**
+     * Returns whether repositories at {@code url} can be read by this lookup, where only local
+     * repositories may be read if {@code offline}.
+     */
+    static boolean supports(URI url, boolean offline) {
+        String scheme = url.getScheme();
+        return "file".equals(scheme)
+                || (!offline && ("https".equals(scheme) || "http".equals(scheme)));
+    }
+
+    /**
+     * Returns the latest eligible version of each of {@code modules} (as {@code group:name}), or
+     * empty if none of the versions is eligible, reading the metadata of every module from every
+     * repository as a separate concurrent request. Modules whose versions could not be determined
+     * are omitted.
+     */
+    Map<String, Optional<String>> latestVersions(Set<String> modules) {
+        Map<String, List<CompletableFuture<Optional<List<String>>>>> lookups = new HashMap<>();
+        for (String module : modules) {
+            List<CompletableFuture<Optional<List<String>>>> fetches = new ArrayList<>();
+            URI moduleRepository = moduleRepositories.get(module);
+            for (URI repository :
+                    moduleRepository != null ? List.of(moduleRepository) : repositories) {
+                fetches.add(fetch(repository, module));
+            }
+            lookups.put(module, fetches);
+        }
+
+        Map<String, Optional<String>> latestVersions = new HashMap<>();
+        lookups.forEach(
+                (module, fetches) ->
+                        latestVersion(module, fetches)
+                                .ifPresent(latest -> latestVersions.put(module, latest)));
+        return latestVersions;
+    }
+
+    private Optional<Optional<String>> latestVersion(
+            String module, List<CompletableFuture<Optional<List<String>>>> fetches) {
+        List<String> candidates = new ArrayList<>();
+        boolean listed = false;
+        for (CompletableFuture<Optional<List<String>>> fetch : fetches) {
+            Optional<List<String>> versions;
+            try {
+                versions = fetch.join();
+            } catch (RuntimeException e) {
+                log.debug("Unable to read the {} of {}", METADATA_FILE, module, e);
+                return Optional.empty();
+            }
+            if (versions.isPresent()) {
+                listed = true;
+                candidates.addAll(versions.get());
+            }
+        }
+        if (!listed) {
+            log.debug("No repository has a {} for {}", METADATA_FILE, module);
+            return Optional.empty();
+        }
+        return Optional.of(
+                candidates.stream().filter(this::isEligible).max(MavenMetadataVersions::compare));
+    }
+
+    private boolean isEligible(String version) {
+        return !version.endsWith("-SNAPSHOT")
+                && disallowedQualifiers.stream().noneMatch(version::contains);
+    }
+
+    /**
+     * Returns the versions listed for {@code module} by {@code repository}, or empty if the
+     * repository does not have the module.
+     */
+    private CompletableFuture<Optional<List<String>>> fetch(URI repository, String module) {
+        URI metadata = metadataUri(repository, module);
+        return requests.submit(metadata, () -> read(metadata));
+    }
+
+    private static Optional<List<String>> read(URI metadata)
+            throws IOException, InterruptedException, XMLStreamException {
+        if ("file".equals(metadata.getScheme())) {
+            try (InputStream in = Files.newInputStream(Path.of(metadata))) {
+                return Optional.of(parseVersions(in));
+            } catch (NoSuchFileException e) {
+                return Optional.empty();
+            }
+        }
+
+        HttpRequest request =
+                HttpRequest.newBuilder().uri(metadata).timeout(REQUEST_TIMEOUT).GET().build();
+        HttpResponse<InputStream> response = CLIENT.send(request, BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            if (response.statusCode() == 404) {
+                return Optional.empty();
+            }
+            if (response.statusCode() != 200) {
+                throw new IOException(
+                        "Unexpected response for " + metadata + ": " + response.statusCode());
+            }
+            return Optional.of(parseVersions(body));
+        }
+    }
+
+    @VisibleForTesting
+    static URI metadataUri(URI repository, String module) {
+        String base = repository.toString();
+        int separator = module.indexOf(':');
+        return URI.create(
+                (base.endsWith("/") ? base : base + "/")
+                        + module.substring(0, separator).replace('.', '/')
+                        + "/"
+                        + module.substring(separator + 1)
+                        + "/"
+                        + METADATA_FILE);
+    }
+
+    /** Reads the {@code <versioning><versions>} of a {@code maven-metadata.xml}. */
+    @VisibleForTesting
+    static List<String> parseVersions(InputStream in) throws XMLStreamException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+        try {
+            List<String> versions = new ArrayList<>();
+            boolean inVersions = false;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if (name.equals("versions")) {
+                        inVersions = true;
+                    } else if (inVersions && name.equals("version")) {
+                        String version = reader.getElementText().trim();
+                        if (!version.isEmpty()) {
+                            versions.add(version);
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT
+                        && reader.getLocalName().equals("versions")) {
+                    inVersions = false;
+                }
+            }
+            return versions;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static XMLInputFactory newXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * Compares versions the way Gradle orders them: versions are split into parts at {@code .},
+     * {@code -}, {@code _} and {@code +} and between digits and other characters, and compared part
+     * by part. Numeric parts are compared numerically and are higher than non-numeric parts; {@code
+     * dev} is lower than other non-numeric parts, and {@code rc}, {@code snapshot}, {@code final},
+     * {@code ga}, {@code release} and {@code sp} are higher, in that order. An additional numeric
+     * part makes a version higher, and an additional non-numeric part makes it lower.
+     */
+    @VisibleForTesting
+    static int compare(String version1, String version2) {
+        List<String> parts1 = parts(version1);
+        List<String> parts2 = parts(version2);
+        int common = Math.min(parts1.size(), parts2.size());
+        for (int i = 0; i < common; i++) {
+            int byPart = comparePart(parts1.get(i), parts2.get(i));
+            if (byPart != 0) {
+                return byPart;
+            }
+        }
+        if (parts1.size() > common) {
+            return isNumeric(parts1.get(common)) ? 1 : -1;
+        }
+        if (parts2.size() > common) {
+            return isNumeric(parts2.get(common)) ? -1 : 1;
+        }
+        return 0;
+    }
+
+    private static int comparePart(String part1, String part2) {
+        if (part1.equals(part2)) {
+            return 0;
+        }
+        boolean numeric1 = isNumeric(part1);
+        boolean numeric2 = isNumeric(part2);
+        if (numeric1 && numeric2) {
+            return new BigInteger(part1).compareTo(new BigInteger(part2));
+        }
+        if (numeric1 || numeric2) {
+            return numeric1 ? 1 : -1;
+        }
+        int bySpecialMeaning = Integer.compare(specialMeaning(part1), specialMeaning(part2));
+        return bySpecialMeaning != 0 ? bySpecialMeaning : part1.compareTo(part2);
+    }
+
+    private static int specialMeaning(String part) {
+        switch (part.toLowerCase(Locale.ROOT)) {
+            case "dev":
+                return -1;
+            case "rc":
+                return 1;
+            case "snapshot":
+                return 2;
+            case "final":
+                return 3;
+            case "ga":
+                return 4;
+            case "release":
+                return 5;
+            case "sp":
+                return 6;
+            default:
+                return 0;
+        }
+    }
+
+    private static List<String> parts(String version) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= version.length(); i++) {
+            if (i == version.length() || isSeparator(version.charAt(i))) {
+                if (i > start) {
+                    parts.add(version.substring(start, i));
+                }
+                start = i + 1;
+            } else if (i > start && isDigit(version.charAt(i)) != isDigit(version.charAt(i - 1))) {
+                parts.add(version.substring(start, i));
+                start = i;
+            }
+        }
+        return parts;
+    }
+
+    private static boolean isSeparator(char ch) {
+        return ch == '.' || ch == '-' || ch == '_' || ch == '+';
+    }
+
+    private static boolean isNumeric(String part) {
+        return part.chars().allMatch(ch -> isDigit((char) ch));
+    }
+
+    private static boolean isDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+}
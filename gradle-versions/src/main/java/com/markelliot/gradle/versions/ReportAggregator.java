@@ -0,0 +1,171 @@
+package com.markelliot.gradle.versions;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.markelliot.gradle.versions.api.YamlSerDe;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BinaryOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Merges the update recommendations of the reports written by {@code checkNewVersions}.
+ *
+ * <p>Reports may be YAML or {@link BinaryReports binary}. They are read in parallel, and each is
+ * streamed straight into the merged result rather than deserialized, so that memory use is bounded
+ * by the number of distinct modules rather than the number of reports. Modules that reports
+ * recommend different versions for are left out of the result, whatever order the reports are read
+ * in.
+ */
+final class ReportAggregator {
+    private static final Logger log = LoggerFactory.getLogger(ReportAggregator.class);
+
+    private ReportAggregator() {}
+
+    /** Returns the recommended version of each {@code group:name} dependency. */
+    static Map<String, String> dependencyUpdates(Collection<File> reports) {
+        return aggregate(
+                reports,
+                BinaryReports.DEPENDENCY_UPDATES,
+                "dependency",
+                (group, name) -> group + ":" + name);
+    }
+
+    /**
+     * Returns the recommended version of each plugin id. Only plugin marker coordinates, of the
+     * form {@code <pluginId>:<pluginId>.gradle.plugin}, are considered, as those are what plugins
+     * blocks resolve to.
+     */
+    static Map<String, String> pluginUpdates(Collection<File> reports) {
+        return aggregate(
+                reports,
+                BinaryReports.PLUGIN_UPDATES,
+                "plugin",
+                (group, name) -> name.endsWith(".gradle.plugin") ? group : null);
+    }
+
+    /**
+     * Merges the recommendations listed under {@code field} of each report, keyed by {@code key}
+     * applied to their group and name (recommendations for which it returns null are skipped).
+     */
+    private static Map<String, String> aggregate(
+            Collection<File> reports, String field, String kind, BinaryOperator<String> key) {
+        ConcurrentMap<String, String> updateRecs = new ConcurrentHashMap<>();
+        Set<String> conflicts = ConcurrentHashMap.newKeySet();
+        reports.parallelStream()
+                .forEach(
+                        report ->
+                                read(
+                                        report.toPath(),
+                                        field,
+                                        (group, name, latestVersion) -> {
+                                            String identifier = key.apply(group, name);
+                                            if (identifier == null) {
+                                                return;
+                                            }
+                                            String previous =
+                                                    updateRecs.putIfAbsent(
+                                                            identifier, latestVersion);
+                                            if (previous != null
+                                                    && !previous.equals(latestVersion)) {
+                                                conflicts.add(identifier);
+                                            }
+                                        }));
+        conflicts.forEach(
+                identifier -> {
+                    log.warn(
+                            "Found conflicting version recommendation for {} '{}'",
+                            kind,
+                            identifier);
+                    // remove so we ignore the conflict
+                    updateRecs.remove(identifier);
+                });
+        return new HashMap<>(updateRecs);
+    }
+
+    private static void read(Path report, String field, RecConsumer consumer) {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(report))) {
+            if (BinaryReports.isBinary(in)) {
+                BinaryReports.read(
+                        in,
+                        (recField, group, name, currentVersion, latestVersion) -> {
+                            if (recField.equals(field)) {
+                                consumer.accept(group, name, latestVersion);
+                            }
+                        });
+            } else {
+                readYaml(report, in, field, consumer);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read report " + report, e);
+        }
+    }
+
+    private static void readYaml(Path report, InputStream in, String field, RecConsumer consumer)
+            throws IOException {
+        try (JsonParser parser = YamlSerDe.parser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                if (parser.nextToken() == JsonToken.START_ARRAY && name.equals(field)) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        readRec(report, parser, consumer);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private static void readRec(Path report, JsonParser parser, RecConsumer consumer)
+            throws IOException {
+        String group = null;
+        String name = null;
+        String latestVersion = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            // versions such as 1.0 may be written unquoted, so take the text of any scalar
+            String value =
+                    token.isScalarValue() && token != JsonToken.VALUE_NULL
+                            ? parser.getText()
+                            : null;
+            parser.skipChildren();
+            switch (field) {
+                case "group":
+                    group = value;
+                    break;
+                case "name":
+                    name = value;
+                    break;
+                case "latestVersion":
+                    latestVersion = value;
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (group == null || name == null || latestVersion == null) {
+            throw new IllegalStateException("Incomplete update recommendation in " + report);
+        }
+        consumer.accept(group, name, latestVersion);
+    }
+
+    private interface RecConsumer {
+        void accept(String group, String name, String latestVersion);
+    }
+}
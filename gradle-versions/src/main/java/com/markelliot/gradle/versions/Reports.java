@@ -1,26 +1,34 @@
 package com.markelliot.gradle.versions;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.markelliot.gradle.versions.api.GradleUpdateReport;
+import com.markelliot.gradle.versions.api.JsonSerDe;
+import com.markelliot.gradle.versions.api.ReportEntry;
+import com.markelliot.gradle.versions.api.ReportSection;
 import com.markelliot.gradle.versions.api.YamlSerDe;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 public final class Reports {
     private static final String REPORT_DIRNAME = "com.markelliot.versions";
     private static final String REPORT_YML = "report.yml";
     private static final String GRADLE_REPORT_YML = "gradle-report.yml";
+    private static final String REPORT_MD = "report.md";
+    private static final String REPORT_JSON = "report.json";
 
-    private Reports() {}
+    /** The location of the Gradle update report relative to the root project's build directory. */
+    static final String GRADLE_REPORT_PATH = REPORT_DIRNAME + "/" + GRADLE_REPORT_YML;
 
-    public static void writeGradleUpdateReport(File projectBuildDir, GradleUpdateReport report) {
-        writeReport(projectBuildDir, GRADLE_REPORT_YML, report);
-    }
+    private Reports() {}
 
     public static Optional<GradleUpdateReport> loadGradleUpdateReport(File projectBuildDir) {
         Path path = Paths.get(projectBuildDir.getPath(), REPORT_DIRNAME, GRADLE_REPORT_YML);
@@ -30,41 +38,15 @@ public final class Reports {
         return Optional.empty();
     }
 
-    private static void writeReport(File projectBuildDir, String file, Object report) {
-        File reportDir = mkdirIfNotExist(projectBuildDir);
-        File reportFile = new File(reportDir, file);
-        String reportContent = YamlSerDe.serialize(report);
-        writeContentToFile(reportFile.toPath(), reportContent);
-    }
-
-    private static void writeContentToFile(Path path, String reportContent) {
-        try {
-            Files.writeString(
-                    path,
-                    reportContent,
-                    StandardOpenOption.CREATE,
-                    StandardOpenOption.TRUNCATE_EXISTING);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    private static void appendContentToFile(Path path, String reportContent) {
-        try {
-            Files.writeString(
-                    path, reportContent, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     public static void clearMarkdownReport(File rootProjectDir) {
         File reportDir = mkdirIfNotExist(rootProjectDir);
-        File report = new File(reportDir, "report.md");
+        File report = new File(reportDir, REPORT_MD);
         if (report.exists()) {
             System.out.println("Clearing existing markdown report");
             Preconditions.checkState(report.delete(), "unable to delete report.md");
         }
+        File json = new File(reportDir, REPORT_JSON);
+        Preconditions.checkState(!json.exists() || json.delete(), "unable to delete report.json");
     }
 
     private static File mkdirIfNotExist(File baseDir) {
@@ -74,8 +56,70 @@ public final class Reports {
         return reportDir;
     }
 
-    public static void appendMarkdownReport(File rootProjectDir, String content) {
+    /**
+     * Appends {@code sections} to the markdown report, along with a JSON twin of it for tools to
+     * consume. The markdown is appended to as text, so that reports written without a JSON twin
+     * (for example by earlier versions of this plugin) are kept. Each file is written to a
+     * temporary file first and then moved into place, so that readers never observe a partial
+     * report.
+     */
+    public static void appendToMarkdownReport(File rootProjectDir, List<ReportSection> sections) {
         File reportDir = mkdirIfNotExist(rootProjectDir);
-        appendContentToFile(new File(reportDir, "report.md").toPath(), content + "\n");
+        Path markdown = new File(reportDir, REPORT_MD).toPath();
+        Path json = new File(reportDir, REPORT_JSON).toPath();
+        List<ReportSection> report = new ArrayList<>();
+        if (Files.exists(json)) {
+            report.addAll(Arrays.asList(JsonSerDe.deserialize(json, ReportSection[].class)));
+        }
+        report.addAll(sections);
+        writeAtomically(markdown, readIfExists(markdown) + renderMarkdown(sections));
+        writeAtomically(json, JsonSerDe.serialize(report));
+    }
+
+    private static String readIfExists(Path path) {
+        try {
+            return Files.exists(path) ? Files.readString(path) : "";
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @VisibleForTesting
+    static String renderMarkdown(List<ReportSection> sections) {
+        StringBuilder markdown = new StringBuilder();
+        for (ReportSection section : sections) {
+            markdown.append("## ").append(section.title()).append('\n');
+            for (ReportEntry entry : section.entries()) {
+                markdown.append(" * `").append(entry.name()).append(' ');
+                entry.oldVersion()
+                        .ifPresentOrElse(
+                                oldVersion -> markdown.append(oldVersion).append(" -> "),
+                                () -> markdown.append("{-> "));
+                markdown.append(entry.newVersion())
+                        .append(entry.oldVersion().isPresent() ? "`\n" : "}`\n");
+            }
+            markdown.append('\n');
+        }
+        return markdown.toString();
+    }
+
+    private static void writeAtomically(Path path, String content) {
+        try {
+            Path tmp =
+                    Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            try {
+                Files.writeString(tmp, content);
+                Files.move(
+                        tmp,
+                        path,
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                // only left behind if writing or moving it failed
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
     }
 }
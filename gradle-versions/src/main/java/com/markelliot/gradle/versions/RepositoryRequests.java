@@ -0,0 +1,108 @@
+package com.markelliot.gradle.versions;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs blocking requests to repositories concurrently, each on its own virtual thread where the
+ * runtime supports them, while allowing at most a fixed number of requests to any one repository
+ * host at a time.
+ *
+ * <p>The plugin targets Java 11, so virtual threads are created reflectively; on older runtimes
+ * requests to each host run on a pool of as many platform threads as are allowed per host, so that
+ * slow hosts do not hold up requests to others.
+ */
+final class RepositoryRequests implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(RepositoryRequests.class);
+
+    private final int maxRequestsPerHost;
+    private final Supplier<ExecutorService> executorFactory;
+    private final ConcurrentMap<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+    // keyed by host, with requests to local files under the empty host
+    private final ConcurrentMap<String, ExecutorService> hostExecutors = new ConcurrentHashMap<>();
+
+    RepositoryRequests(int maxRequestsPerHost) {
+        this(maxRequestsPerHost, () -> newExecutor(maxRequestsPerHost));
+    }
+
+    @VisibleForTesting
+    RepositoryRequests(int maxRequestsPerHost, Supplier<ExecutorService> executorFactory) {
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        this.executorFactory = executorFactory;
+    }
+
+    /**
+     * Runs {@code request} to {@code uri} once fewer than the maximum number of requests to its
+     * host are running. Requests to local files are not limited.
+     */
+    <T> CompletableFuture<T> submit(URI uri, Callable<T> request) {
+        String host = uri.getAuthority();
+        Semaphore permits =
+                host == null
+                        ? null
+                        : hostPermits.computeIfAbsent(
+                                host, unused -> new Semaphore(maxRequestsPerHost));
+        ExecutorService executor =
+                hostExecutors.computeIfAbsent(
+                        Strings.nullToEmpty(host), unused -> executorFactory.get());
+        return CompletableFuture.supplyAsync(
+                () -> {
+                    try {
+                        if (permits != null) {
+                            permits.acquire();
+                        }
+                        try {
+                            return request.call();
+                        } finally {
+                            if (permits != null) {
+                                permits.release();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new CompletionException(e);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                },
+                executor);
+    }
+
+    @Override
+    public void close() {
+        hostExecutors.values().forEach(ExecutorService::shutdownNow);
+    }
+
+    private static ExecutorService newExecutor(int platformThreads) {
+        try {
+            return (ExecutorService)
+                    Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.debug("Virtual threads are unavailable, using platform threads", e);
+            return newPlatformExecutor(platformThreads);
+        }
+    }
+
+    @VisibleForTesting
+    static ExecutorService newPlatformExecutor(int platformThreads) {
+        return Executors.newFixedThreadPool(
+                platformThreads,
+                new ThreadFactoryBuilder()
+                        .setNameFormat("repository-requests-%d")
+                        .setDaemon(true)
+                        .build());
+    }
+}
@@ -1,10 +1,15 @@
 package com.markelliot.gradle.versions;
 
+import java.io.File;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.TaskProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,6 +17,8 @@ import org.slf4j.LoggerFactory;
 public final class RootUpdateVersionsPlugin implements Plugin<Project> {
     private static final String VERSIONS_PROPS = "versions.props";
     private static final String ALL_REPORTS = "allReports";
+    private static final String WRAPPER_PROPS = "gradle/wrapper/gradle-wrapper.properties";
+    private static final String VERSION_CATALOG = "gradle/libs.versions.toml";
 
     private static final Logger log = LoggerFactory.getLogger(RootUpdateVersionsPlugin.class);
 
@@ -22,6 +29,12 @@ public final class RootUpdateVersionsPlugin implements Plugin<Project> {
             return;
         }
 
+        UpdateVersionsExtension extension =
+                project.getExtensions()
+                        .create(UpdateVersionsExtension.NAME, UpdateVersionsExtension.class);
+        LatestVersionsService.register(project, extension);
+        Provider<MarkdownReportService> reportService = MarkdownReportService.register(project);
+
         Configuration reportConfiguration = createReportConfiguration(project);
         project.allprojects(
                 subProject -> {
@@ -41,7 +54,10 @@ public final class RootUpdateVersionsPlugin implements Plugin<Project> {
                 .register(
                         "clearUpdateMarkdownReport",
                         ClearMarkdownReportTask.class,
-                        task -> task.setDescription("Clears the markdown report of updates"));
+                        task -> {
+                            task.getBuildDir().set(project.getLayout().getBuildDirectory());
+                            task.setDescription("Clears the markdown report of updates");
+                        });
 
         project.getTasks()
                 .register(
@@ -53,6 +69,26 @@ public final class RootUpdateVersionsPlugin implements Plugin<Project> {
 
                             task.getVersionsProps().set(project.file(VERSIONS_PROPS));
                             task.getReports().from(reportConfiguration);
+                            task.getReportService().set(reportService);
+                            task.usesService(reportService);
+                        });
+
+        project.getTasks()
+                .register(
+                        "updateVersionCatalog",
+                        UpdateVersionCatalogTask.class,
+                        task -> {
+                            task.setDescription(
+                                    "Uses result of checkNewVersions task to update the libraries of "
+                                            + VERSION_CATALOG);
+
+                            task.getVersionCatalog().set(project.file(VERSION_CATALOG));
+                            task.getReports().from(reportConfiguration);
+                            task.getReportService().set(reportService);
+                            task.usesService(reportService);
+                            // most builds don't use a version catalog
+                            task.onlyIf(
+                                    unused -> task.getVersionCatalog().get().getAsFile().exists());
                         });
 
         project.getTasks()
@@ -61,6 +97,17 @@ public final class RootUpdateVersionsPlugin implements Plugin<Project> {
                         UpdatePluginsTask.class,
                         task -> {
                             task.getReports().from(reportConfiguration);
+                            task.getBuildFiles().from(buildFiles(project));
+                            task.getBuildFiles()
+                                    .from(
+                                            project.file("settings.gradle"),
+                                            project.file("settings.gradle.kts"));
+                            task.getVersionCatalogs().from(project.file(VERSION_CATALOG));
+                            task.getReportService().set(reportService);
+                            task.usesService(reportService);
+                            task.getMaxParallelism().set(extension.getMaxParallelism());
+                            // both tasks rewrite the version catalog
+                            task.mustRunAfter("updateVersionCatalog");
                             task.setDescription(
                                     "Uses result of checkNewVersions task to update buildscript plugin blocks");
                         });
@@ -70,6 +117,10 @@ public final class RootUpdateVersionsPlugin implements Plugin<Project> {
                         "updateGradleWrapper",
                         UpdateGradleWrapperTask.class,
                         task -> {
+                            task.getBuildDir().set(project.getLayout().getBuildDirectory());
+                            task.getWrapperProperties().set(project.file(WRAPPER_PROPS));
+                            task.getReportService().set(reportService);
+                            task.usesService(reportService);
                             task.setDescription(
                                     "Uses result of checkNewGradleVersion to update Gradle wrapper");
                         });
@@ -79,9 +130,38 @@ public final class RootUpdateVersionsPlugin implements Plugin<Project> {
                         .register(
                                 "checkNewGradleVersion",
                                 CheckNewGradleVersionTask.class,
-                                task ->
-                                        task.setDescription(
-                                                "Checks for and reports on existence of a new Gradle version"));
+                                task -> {
+                                    task.getReportFile()
+                                            .set(
+                                                    project.getLayout()
+                                                            .getBuildDirectory()
+                                                            .file(Reports.GRADLE_REPORT_PATH));
+                                    task.getProjectPath().set(project.getPath());
+                                    task.getRefreshVersions()
+                                            .convention(
+                                                    project.getGradle()
+                                                            .getStartParameter()
+                                                            .isRefreshDependencies());
+                                    task.getFreshnessKey()
+                                            .set(
+                                                    FreshnessKeySource.of(
+                                                            project.getProviders(),
+                                                            extension.getCacheTtl(),
+                                                            task.getRefreshVersions()));
+                                    task.getFreshnessKey().finalizeValueOnRead();
+                                    task.getBaseUrl().set(extension.getGradleVersionsUrl());
+                                    task.getReleaseChannels()
+                                            .set(extension.getGradleReleaseChannels());
+                                    task.getCacheDir()
+                                            .set(
+                                                    new File(
+                                                            project.getGradle()
+                                                                    .getGradleUserHomeDir(),
+                                                            "caches/com.markelliot.versions/gradle-versions"));
+                                    task.getCacheTtl().set(extension.getCacheTtl());
+                                    task.setDescription(
+                                            "Checks for and reports on existence of a new Gradle version");
+                                });
         project.getTasks().named("checkNewVersions").configure(task -> task.dependsOn(gradleTask));
 
         project.getTasks()
@@ -93,10 +173,20 @@ public final class RootUpdateVersionsPlugin implements Plugin<Project> {
                                     project.getTasks().getByName("clearUpdateMarkdownReport"),
                                     project.getTasks().getByName("updateGradleWrapper"),
                                     project.getTasks().getByName("updatePlugins"),
-                                    project.getTasks().getByName("updateVersionsProps"));
+                                    project.getTasks().getByName("updateVersionsProps"),
+                                    project.getTasks().getByName("updateVersionCatalog"));
                         });
     }
 
+    private static Provider<List<File>> buildFiles(Project project) {
+        return project.provider(
+                () ->
+                        project.getAllprojects().stream()
+                                .map(proj -> proj.getBuildscript().getSourceFile())
+                                .filter(Objects::nonNull)
+                                .collect(Collectors.toList()));
+    }
+
     private static Configuration createReportConfiguration(Project project) {
         return project.getConfigurations()
                 .create(
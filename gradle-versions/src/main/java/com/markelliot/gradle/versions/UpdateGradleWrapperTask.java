@@ -1,8 +1,9 @@
 package com.markelliot.gradle.versions;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.jakewharton.nopen.annotation.Open;
 import com.markelliot.gradle.versions.api.GradleUpdateReport;
+import com.markelliot.gradle.versions.api.ReportEntry;
+import com.markelliot.gradle.versions.api.ReportSection;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -10,29 +11,32 @@ import java.nio.file.StandardOpenOption;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.TaskAction;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-@Open
-public class UpdateGradleWrapperTask extends DefaultTask {
-    private static final String WRAPPER_PROPS = "gradle/wrapper/gradle-wrapper.properties";
+public abstract class UpdateGradleWrapperTask extends DefaultTask {
 
-    private static final Logger log = LoggerFactory.getLogger(UpdateGradleWrapperTask.class);
+    @Internal
+    abstract DirectoryProperty getBuildDir();
+
+    @Internal
+    abstract RegularFileProperty getWrapperProperties();
+
+    /** Collects the sections of the build's markdown report. */
+    @Internal
+    abstract Property<MarkdownReportService> getReportService();
 
     @TaskAction
     public void taskAction() {
-        if (!getProject().equals(getProject().getRootProject())) {
-            log.warn("Can only run updateGradle on the root project");
-            return;
-        }
-
-        Reports.loadGradleUpdateReport(getProject().getBuildDir())
+        Reports.loadGradleUpdateReport(getBuildDir().getAsFile().get())
                 .ifPresent(this::applyGradleUpdate);
     }
 
     private void applyGradleUpdate(GradleUpdateReport gur) {
-        File file = new File(getProject().getProjectDir(), WRAPPER_PROPS);
+        File file = getWrapperProperties().getAsFile().get();
         if (file.exists()) {
             System.out.println(
                     "Updating Gradle wrapper "
@@ -49,14 +53,18 @@ public class UpdateGradleWrapperTask extends DefaultTask {
                 throw new RuntimeException(e);
             }
 
-            Reports.appendMarkdownReport(
-                    getProject().getBuildDir(),
-                    "## Updated Gradle\n"
-                            + " * Gradle Wrapper `"
-                            + gur.gradle().currentVersion()
-                            + " -> "
-                            + gur.gradle().latestVersion()
-                            + "`\n");
+            getReportService()
+                    .get()
+                    .addSection(
+                            ReportSection.builder()
+                                    .title("Updated Gradle")
+                                    .addEntries(
+                                            ReportEntry.builder()
+                                                    .name("Gradle Wrapper")
+                                                    .oldVersion(gur.gradle().currentVersion())
+                                                    .newVersion(gur.gradle().latestVersion())
+                                                    .build())
+                                    .build());
         }
     }
 
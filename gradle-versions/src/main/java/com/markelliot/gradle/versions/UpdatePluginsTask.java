@@ -1,80 +1,209 @@
 package com.markelliot.gradle.versions;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.markelliot.gradle.versions.api.UpdateReport;
-import com.markelliot.gradle.versions.api.YamlSerDe;
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.markelliot.gradle.versions.api.ReportEntry;
+import com.markelliot.gradle.versions.api.ReportSection;
+import com.markelliot.gradle.versions.catalog.VersionCatalog;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.TaskAction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public abstract class UpdatePluginsTask extends DefaultTask {
+    private static final Logger log = LoggerFactory.getLogger(UpdatePluginsTask.class);
 
     @InputFiles
     abstract ConfigurableFileCollection getReports();
 
+    /** The buildscripts of all projects in the build, and its settings script. */
+    @Internal
+    abstract ConfigurableFileCollection getBuildFiles();
+
+    /** Version catalogs whose {@code [plugins]} are updated. */
+    @Internal
+    abstract ConfigurableFileCollection getVersionCatalogs();
+
+    /** Collects the sections of the build's markdown report. */
+    @Internal
+    abstract Property<MarkdownReportService> getReportService();
+
+    /** The maximum number of build files rewritten concurrently. */
+    @Internal
+    abstract Property<Integer> getMaxParallelism();
+
     @TaskAction
     public void taskAction() {
-        List<UpdateReport> reports =
-                getReports().getFiles().stream()
-                        .map(file -> YamlSerDe.deserialize(file.toPath(), UpdateReport.class))
-                        .collect(Collectors.toUnmodifiableList());
-
-        Map<String, String> pluginUpdates = mergePluginUpdates(reports);
-        getProject()
-                .allprojects(
-                        proj -> {
-                            File sourceFile = proj.getBuildscript().getSourceFile();
-                            if (sourceFile != null && sourceFile.exists()) {
-                                setNewPluginVersions(sourceFile, pluginUpdates);
-                            }
-                        });
-
+        Map<String, String> pluginUpdates = ReportAggregator.pluginUpdates(getReports().getFiles());
         if (!pluginUpdates.isEmpty()) {
-            Reports.appendMarkdownReport(
-                    getProject().getBuildDir(),
-                    "## Updated Gradle Plugins\n"
-                            + pluginUpdates.entrySet().stream()
-                                    .map(
-                                            entry ->
-                                                    String.format(
-                                                            " * `%s {-> %s}`\n",
-                                                            entry.getKey(), entry.getValue()))
-                                    .collect(Collectors.joining()));
+            setNewPluginVersions(pluginUpdates);
+            getReportService()
+                    .get()
+                    .addSection(
+                            ReportSection.builder()
+                                    .title("Updated Gradle Plugins")
+                                    .addAllEntries(
+                                            pluginUpdates.entrySet().stream()
+                                                    .map(
+                                                            entry ->
+                                                                    ReportEntry.builder()
+                                                                            .name(entry.getKey())
+                                                                            .newVersion(
+                                                                                    entry
+                                                                                            .getValue())
+                                                                            .build())
+                                                    .collect(Collectors.toList()))
+                                    .build());
         }
     }
 
-    private void setNewPluginVersions(File sourceFile, Map<String, String> pluginUpdates) {
-        String content = read(sourceFile);
-        for (Map.Entry<String, String> update : pluginUpdates.entrySet()) {
-            content = applyUpdate(content, update.getKey(), update.getValue());
+    /** Rewrites the build files in parallel, as each is independent of the others. */
+    private void setNewPluginVersions(Map<String, String> pluginUpdates) {
+        Map<File, UnaryOperator<String>> rewrites = new LinkedHashMap<>();
+        existing(getBuildFiles())
+                .forEach(
+                        file ->
+                                rewrites.put(
+                                        file, content -> applyUpdates(content, pluginUpdates)));
+        List<File> catalogs = existing(getVersionCatalogs());
+        if (!catalogs.isEmpty()) {
+            // libraries sharing a version with plugins must agree with them
+            Map<String, String> libraryUpdates =
+                    ReportAggregator.dependencyUpdates(getReports().getFiles());
+            catalogs.forEach(
+                    file ->
+                            rewrites.put(
+                                    file,
+                                    content ->
+                                            applyCatalogUpdates(
+                                                    file, content, pluginUpdates, libraryUpdates)));
+        }
+        if (rewrites.isEmpty()) {
+            return;
+        }
+        ExecutorService executor =
+                Executors.newFixedThreadPool(
+                        Math.min(getMaxParallelism().get(), rewrites.size()),
+                        new ThreadFactoryBuilder()
+                                .setNameFormat("update-plugins-%d")
+                                .setDaemon(true)
+                                .build());
+        try {
+            List<CompletableFuture<Void>> futures =
+                    rewrites.entrySet().stream()
+                            .map(
+                                    rewrite ->
+                                            CompletableFuture.runAsync(
+                                                    () ->
+                                                            rewrite(
+                                                                    rewrite.getKey(),
+                                                                    rewrite.getValue()),
+                                                    executor))
+                            .collect(Collectors.toList());
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            executor.shutdownNow();
         }
-        write(sourceFile, content);
+    }
+
+    /**
+     * Writes {@code file} only if its content changes, to avoid needlessly invalidating file system
+     * watchers and IDE indexes.
+     */
+    private static void rewrite(File file, UnaryOperator<String> update) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        String content = read(file);
+        String updated = update.apply(content);
+        if (updated.equals(content)) {
+            log.debug("Checked {} in {}, no changes", file, stopwatch);
+            return;
+        }
+        write(file, updated);
+        log.debug("Updated plugin versions in {} in {}", file, stopwatch);
+    }
+
+    private static String applyCatalogUpdates(
+            File file,
+            String content,
+            Map<String, String> pluginUpdates,
+            Map<String, String> libraryUpdates) {
+        VersionCatalog catalog = VersionCatalog.from(content);
+        catalog.updatePlugins(pluginUpdates, libraryUpdates)
+                .conflicts()
+                .forEach(
+                        conflict ->
+                                log.warn(
+                                        "Found conflicting version recommendations for '{}' in {}: {}",
+                                        conflict.versionRef(),
+                                        file,
+                                        conflict.recommendations()));
+        return catalog.writeToString();
+    }
+
+    private static List<File> existing(ConfigurableFileCollection files) {
+        return files.getFiles().stream().filter(File::exists).collect(Collectors.toList());
     }
 
     @VisibleForTesting
     static String applyUpdate(String content, String pluginName, String pluginVersion) {
-        Pattern pattern =
-                Pattern.compile(
-                        "id(\\s+|\\s*\\()([\"'])"
-                                + Pattern.quote(pluginName)
-                                + "([\"'])(\\s+|\\)\\s+)version\\s+([\"'])([^\"']+)([\"'])");
-        Matcher matcher = pattern.matcher(content);
-        if (matcher.find()) {
-            content =
-                    matcher.replaceFirst(
-                            "id$1$2" + pluginName + "$3$4version $5" + pluginVersion + "$7");
+        return applyUpdates(content, Map.of(pluginName, pluginVersion));
+    }
+
+    /**
+     * Rewrites the version of every {@code id 'plugin' version '...'} (or {@code id("plugin")
+     * version "..."}) declaration in {@code content} whose plugin has an entry in {@code
+     * pluginUpdates}, in a single scan of the content. Returns {@code content} itself when nothing
+     * changed.
+     */
+    @VisibleForTesting
+    static String applyUpdates(String content, Map<String, String> pluginUpdates) {
+        if (pluginUpdates.isEmpty()) {
+            return content;
+        }
+        StringBuilder result = null;
+        int copied = 0;
+        int pos = 0;
+        int idStart;
+        while ((idStart = content.indexOf("id", pos)) >= 0) {
+            pos = idStart + 2;
+            if (idStart > 0 && Character.isJavaIdentifierPart(content.charAt(idStart - 1))) {
+                continue;
+            }
+            PluginDeclaration declaration = PluginDeclaration.parse(content, pos);
+            if (declaration == null) {
+                continue;
+            }
+            pos = declaration.end;
+            String newVersion = pluginUpdates.get(declaration.pluginId);
+            if (newVersion == null) {
+                continue;
+            }
+            if (result == null) {
+                result = new StringBuilder(content.length() + 16);
+            }
+            result.append(content, copied, declaration.versionStart).append(newVersion);
+            copied = declaration.versionEnd;
         }
-        return content;
+        if (result == null) {
+            return content;
+        }
+        return result.append(content, copied, content.length()).toString();
     }
 
     private static String read(File file) {
@@ -93,32 +222,86 @@ public abstract class UpdatePluginsTask extends DefaultTask {
         }
     }
 
-    private Map<String, String> mergePluginUpdates(List<UpdateReport> reports) {
-        Map<String, String> updateRecs = new HashMap<>();
-        reports.stream()
-                .flatMap(report -> report.pluginUpdates().stream())
-                // coordinates< for plugin-block dependencies (which is all we support) are of the
-                // form:
-                // <pluginId>:<pluginId>.gradle.plugin
-                .filter(rec -> rec.name().endsWith(".gradle.plugin"))
-                .forEach(
-                        rec -> {
-                            String pluginName = rec.group();
-                            if (updateRecs.containsKey(pluginName)) {
-                                if (!updateRecs.get(pluginName).equals(rec.latestVersion())) {
-                                    getLogger()
-                                            .warn(
-                                                    "Found conflicting version recommendation for plugin '"
-                                                            + pluginName
-                                                            + "'");
-
-                                    // remove so we ignore the conflict
-                                    updateRecs.remove(pluginName);
-                                }
-                            } else {
-                                updateRecs.put(pluginName, rec.latestVersion());
-                            }
-                        });
-        return updateRecs;
+    /** The spans of a plugin declaration, from just after its {@code id} keyword. */
+    private static final class PluginDeclaration {
+        private final String pluginId;
+        private final int versionStart;
+        private final int versionEnd;
+        private final int end;
+
+        private PluginDeclaration(String pluginId, int versionStart, int versionEnd, int end) {
+            this.pluginId = pluginId;
+            this.versionStart = versionStart;
+            this.versionEnd = versionEnd;
+            this.end = end;
+        }
+
+        /**
+         * Parses {@code [ws]'plugin'ws version ws'version'} or {@code ("plugin") version "version"}
+         * at {@code start}, returning null if the content there is anything else.
+         */
+        static PluginDeclaration parse(String content, int start) {
+            int pos = skipWhitespace(content, start);
+            boolean parenthesized = pos < content.length() && content.charAt(pos) == '(';
+            if (parenthesized) {
+                pos = skipWhitespace(content, pos + 1);
+            } else if (pos == start) {
+                return null;
+            }
+            int idEnd = quotedEnd(content, pos);
+            if (idEnd < 0) {
+                return null;
+            }
+            String pluginId = content.substring(pos + 1, idEnd - 1);
+            pos = idEnd;
+            if (parenthesized) {
+                pos = skipWhitespace(content, pos);
+                if (pos == content.length() || content.charAt(pos) != ')') {
+                    return null;
+                }
+                pos++;
+            }
+            int keyword = skipWhitespace(content, pos);
+            if (keyword == pos || !content.startsWith("version", keyword)) {
+                return null;
+            }
+            pos = keyword + "version".length();
+            int versionQuote = skipWhitespace(content, pos);
+            if (versionQuote == pos) {
+                return null;
+            }
+            int versionEnd = quotedEnd(content, versionQuote);
+            if (versionEnd < 0) {
+                return null;
+            }
+            return new PluginDeclaration(pluginId, versionQuote + 1, versionEnd - 1, versionEnd);
+        }
+
+        /**
+         * Returns the index just past the closing quote of the non-empty string literal opening at
+         * {@code start}, or -1 if there is none.
+         */
+        private static int quotedEnd(String content, int start) {
+            if (start >= content.length() || !isQuote(content.charAt(start))) {
+                return -1;
+            }
+            int pos = start + 1;
+            while (pos < content.length() && !isQuote(content.charAt(pos))) {
+                pos++;
+            }
+            return pos == content.length() || pos == start + 1 ? -1 : pos + 1;
+        }
+
+        private static boolean isQuote(char ch) {
+            return ch == '"' || ch == '\'';
+        }
+
+        private static int skipWhitespace(String content, int start) {
+            int pos = start;
+            while (pos < content.length() && Character.isWhitespace(content.charAt(pos))) {
+                pos++;
+            }
+            return pos;
+        }
     }
 }
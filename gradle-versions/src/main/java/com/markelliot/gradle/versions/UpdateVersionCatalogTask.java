@@ -0,0 +1,79 @@
+package com.markelliot.gradle.versions;
+
+import com.markelliot.gradle.versions.api.ReportEntry;
+import com.markelliot.gradle.versions.api.ReportSection;
+import com.markelliot.gradle.versions.catalog.VersionCatalog;
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public abstract class UpdateVersionCatalogTask extends DefaultTask {
+    private static final Logger log = LoggerFactory.getLogger(UpdateVersionCatalogTask.class);
+
+    @InputFile
+    abstract RegularFileProperty getVersionCatalog();
+
+    @InputFiles
+    abstract ConfigurableFileCollection getReports();
+
+    /** Collects the sections of the build's markdown report. */
+    @Internal
+    abstract Property<MarkdownReportService> getReportService();
+
+    @TaskAction
+    public final void taskAction() {
+        File catalogFile = getVersionCatalog().getAsFile().get();
+        // collect and merge all the update recommendations
+        Map<String, String> updateRecs =
+                ReportAggregator.dependencyUpdates(getReports().getFiles());
+        // plugins sharing a version with libraries must agree with them
+        Map<String, String> pluginRecs = ReportAggregator.pluginUpdates(getReports().getFiles());
+
+        // update the catalog's libraries
+        VersionCatalog catalog = VersionCatalog.from(catalogFile);
+        VersionCatalog.UpdateResult result = catalog.updateLibraries(updateRecs, pluginRecs);
+        result.conflicts()
+                .forEach(
+                        conflict ->
+                                log.warn(
+                                        "Found conflicting version recommendations for '{}': {}",
+                                        conflict.versionRef(),
+                                        conflict.recommendations()));
+        List<VersionCatalog.UpdatedVersion> updates = result.updated();
+        updates.forEach(u -> log.info("Setting {} = {}", u.key(), u.newVersion()));
+        if (!updates.isEmpty()) {
+            catalog.to(catalogFile);
+
+            // markdown output
+            getReportService()
+                    .get()
+                    .addSection(
+                            ReportSection.builder()
+                                    .title("Updated Version Catalog")
+                                    .addAllEntries(
+                                            updates.stream()
+                                                    .map(
+                                                            u ->
+                                                                    ReportEntry.builder()
+                                                                            .name(u.key())
+                                                                            .oldVersion(
+                                                                                    u.oldVersion())
+                                                                            .newVersion(
+                                                                                    u.newVersion())
+                                                                            .build())
+                                                    .collect(Collectors.toList()))
+                                    .build());
+        }
+    }
+}
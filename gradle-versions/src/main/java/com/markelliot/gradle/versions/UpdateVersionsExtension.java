@@ -0,0 +1,90 @@
+package com.markelliot.gradle.versions;
+
+import com.markelliot.gradle.versions.GradleVersions.ReleaseChannel;
+import java.time.Duration;
+import java.util.Set;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
+
+/** Build-wide settings for the version check and update tasks, configured on the root project. */
+public abstract class UpdateVersionsExtension {
+    public static final String NAME = "updateVersions";
+
+    /**
+     * Whether {@code checkNewVersions} resolves the latest versions of all of a project's modules
+     * in a single batched resolution instead of once per configuration. Defaults to {@code false}.
+     */
+    public abstract Property<Boolean> getBatchResolution();
+
+    /**
+     * How long the result of a latest-version lookup is reused by subsequent builds before the
+     * repositories are queried again; lookups that found no latest version are reused for at most
+     * five minutes. A zero duration disables the persistent cache. Defaults to one hour.
+     */
+    public abstract Property<Duration> getCacheTtl();
+
+    /**
+     * The maximum number of build files that {@code updatePlugins} rewrites concurrently. Defaults
+     * to the number of available processors.
+     */
+    public abstract Property<Integer> getMaxParallelism();
+
+    /**
+     * Whether {@code checkNewVersions} looks up latest versions by reading the {@code
+     * maven-metadata.xml} of each module from the project's repositories directly while it
+     * executes, which is much cheaper than resolving the latest version with Gradle. Modules whose
+     * metadata cannot be read are not checked for updates. Modules of projects with repositories
+     * other than {@code http(s)} or {@code file} Maven repositories are still resolved with Gradle.
+     * Repository content filters are not applied to direct lookups. Defaults to {@code false}.
+     */
+    public abstract Property<Boolean> getMavenMetadataLookup();
+
+    /**
+     * Whether the latest version of a module is only looked up in the repository that served its
+     * current version, rather than in all of the project's repositories. Requires {@link
+     * #getMavenMetadataLookup()}, and checking for new versions fails if it is not enabled. Modules
+     * resolved with Gradle are still looked up in all repositories. Defaults to {@code false}.
+     */
+    public abstract Property<Boolean> getSourceRepositoryOnly();
+
+    /**
+     * The maximum number of concurrent {@code maven-metadata.xml} requests to any one repository
+     * host when {@link #getMavenMetadataLookup()} is enabled. Each request runs on its own virtual
+     * thread on Java 21 and later, and otherwise on a pool of this many threads per host. Defaults
+     * to 8.
+     */
+    public abstract Property<Integer> getMaxRequestsPerHost();
+
+    /**
+     * Whether {@code checkNewVersions} publishes its report to the root project in a compact binary
+     * format, which is much faster for the root project's update tasks to read than YAML. A YAML
+     * copy of the report is still written to {@code versions-report.yml} for people to read.
+     * Defaults to {@code false}.
+     */
+    public abstract Property<Boolean> getBinaryReports();
+
+    /**
+     * The base URL of the Gradle versions service queried by {@code checkNewGradleVersion}.
+     * Defaults to {@value GradleVersions#DEFAULT_BASE_URL}.
+     */
+    public abstract Property<String> getGradleVersionsUrl();
+
+    /**
+     * The ids of the Gradle release channels (e.g. {@code current}, {@code release-candidate},
+     * {@code nightly}) considered by {@code checkNewGradleVersion}; the newest release across them
+     * is recommended. Defaults to {@code current}.
+     */
+    public abstract SetProperty<String> getGradleReleaseChannels();
+
+    public UpdateVersionsExtension() {
+        getBatchResolution().convention(false);
+        getCacheTtl().convention(Duration.ofHours(1));
+        getBinaryReports().convention(false);
+        getMavenMetadataLookup().convention(false);
+        getMaxRequestsPerHost().convention(8);
+        getSourceRepositoryOnly().convention(false);
+        getMaxParallelism().convention(Runtime.getRuntime().availableProcessors());
+        getGradleVersionsUrl().convention(GradleVersions.DEFAULT_BASE_URL);
+        getGradleReleaseChannels().convention(Set.of(ReleaseChannel.CURRENT.id()));
+    }
+}
@@ -16,9 +16,13 @@
 
 package com.markelliot.gradle.versions;
 
+import java.util.List;
+import java.util.Map;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.TaskProvider;
 
 public final class UpdateVersionsPlugin implements Plugin<Project> {
@@ -26,17 +30,37 @@ public final class UpdateVersionsPlugin implements Plugin<Project> {
 
     @Override
     public void apply(Project project) {
+        UpdateVersionsExtension extension =
+                project.getRootProject().getExtensions().getByType(UpdateVersionsExtension.class);
+        Provider<LatestVersionsService> latestVersionsService =
+                LatestVersionsService.register(project.getRootProject(), extension);
+
         TaskProvider<CheckNewVersionsTask> checkNewVersions =
                 project.getTasks()
                         .register(
                                 "checkNewVersions",
                                 CheckNewVersionsTask.class,
                                 task -> {
-                                    task.getReportFile()
+                                    configureReportFiles(project, task, extension);
+                                    task.getProjectPath().set(project.getPath());
+                                    task.getProjectName().set(project.getName());
+                                    task.getBatchResolution().set(extension.getBatchResolution());
+                                    task.getLatestVersionsService().set(latestVersionsService);
+                                    task.getRefreshVersions()
+                                            .convention(
+                                                    project.getGradle()
+                                                            .getStartParameter()
+                                                            .isRefreshDependencies());
+                                    task.getFreshnessKey()
                                             .set(
-                                                    project.getLayout()
-                                                            .getBuildDirectory()
-                                                            .file("versions-report.yml"));
+                                                    FreshnessKeySource.of(
+                                                            project.getProviders(),
+                                                            extension.getCacheTtl(),
+                                                            task.getRefreshVersions()));
+                                    task.getFreshnessKey().finalizeValueOnRead();
+                                    task.usesService(latestVersionsService);
+                                    configureVersions(
+                                            project, task, latestVersionsService, extension);
                                     task.setDescription(
                                             "Checks for and reports on existence of newer versions of dependencies and plugins");
                                 });
@@ -44,6 +68,107 @@ public final class UpdateVersionsPlugin implements Plugin<Project> {
         createOutgoingConfiguration(project, checkNewVersions);
     }
 
+    /**
+     * Publishes the report as YAML, or in binary with a YAML copy for people to read if binary
+     * reports are enabled.
+     */
+    private static void configureReportFiles(
+            Project project, CheckNewVersionsTask task, UpdateVersionsExtension extension) {
+        Provider<Boolean> binary = extension.getBinaryReports();
+        DirectoryProperty buildDir = project.getLayout().getBuildDirectory();
+        task.getBinaryReport().set(binary);
+        task.getReportFile()
+                .set(
+                        buildDir.file(
+                                binary.map(
+                                        b -> b ? "versions-report.bin" : "versions-report.yml")));
+        task.getYamlReportFile()
+                .set(buildDir.file(binary.filter(b -> b).map(unused -> "versions-report.yml")));
+    }
+
+    /**
+     * Resolves current versions, and latest versions that can only be resolved with Gradle, in
+     * providers rather than in the task action, so that the task never accesses the project at
+     * execution time. Latest versions that can be read from {@code maven-metadata.xml} are only
+     * described by providers, and looked up by the task action.
+     */
+    private static void configureVersions(
+            Project project,
+            CheckNewVersionsTask task,
+            Provider<LatestVersionsService> latestVersionsService,
+            UpdateVersionsExtension extension) {
+        DependencyVersionResolver resolver =
+                new DependencyVersionResolver(
+                        project,
+                        task.getDisallowedQualifiers(),
+                        extension.getMavenMetadataLookup(),
+                        extension.getSourceRepositoryOnly());
+        task.getCurrentDependencies().set(project.provider(resolver::currentDependencies));
+        task.getCurrentDependencies().finalizeValueOnRead();
+        task.getCurrentPlugins().set(project.provider(resolver::currentPlugins));
+        task.getCurrentPlugins().finalizeValueOnRead();
+        task.getDependencyLookup()
+                .set(
+                        project.provider(
+                                () -> {
+                                    // records the repositories that served current versions
+                                    task.getCurrentDependencies().get();
+                                    return resolver.dependencyLookup().orElse(null);
+                                }));
+        task.getDependencyLookup().finalizeValueOnRead();
+        task.getLatestDependencyVersions()
+                .set(
+                        project.provider(
+                                () -> {
+                                    // looked up by the task action, or nothing to look up
+                                    if (task.getDependencyLookup().isPresent()
+                                            || task.getCurrentDependencies().get().values().stream()
+                                                    .allMatch(List::isEmpty)) {
+                                        return Map.of();
+                                    }
+                                    readFreshnessKey(task);
+                                    return resolver.latestDependencyVersions(
+                                            task.getCurrentDependencies().get(),
+                                            latestVersionsService.get(),
+                                            task.getRefreshVersions().get(),
+                                            task.getBatchResolution().get());
+                                }));
+        task.getLatestDependencyVersions().finalizeValueOnRead();
+        task.getPluginLookup()
+                .set(
+                        project.provider(
+                                () -> {
+                                    task.getCurrentPlugins().get();
+                                    return resolver.pluginLookup().orElse(null);
+                                }));
+        task.getPluginLookup().finalizeValueOnRead();
+        task.getLatestPluginVersions()
+                .set(
+                        project.provider(
+                                () -> {
+                                    if (task.getPluginLookup().isPresent()
+                                            || task.getCurrentPlugins().get().isEmpty()) {
+                                        return Map.of();
+                                    }
+                                    readFreshnessKey(task);
+                                    return resolver.latestPluginVersions(
+                                            task.getCurrentPlugins().get(),
+                                            latestVersionsService.get(),
+                                            task.getRefreshVersions().get());
+                                }));
+        task.getLatestPluginVersions().finalizeValueOnRead();
+    }
+
+    /**
+     * Reads the task's freshness key while its latest versions are resolved with Gradle, which
+     * happens while the configuration cache entry is stored, so that the key is recorded as an
+     * input of the entry and the resolved latest versions are discarded along with the entry once
+     * the key changes.
+     */
+    private static void readFreshnessKey(CheckNewVersionsTask task) {
+        task.getFreshnessKey().get();
+    }
+
     private static void createOutgoingConfiguration(
             Project project, TaskProvider<CheckNewVersionsTask> task) {
         Configuration outgoingConfiguration =
@@ -1,7 +1,7 @@
 package com.markelliot.gradle.versions;
 
-import com.markelliot.gradle.versions.api.UpdateReport;
-import com.markelliot.gradle.versions.api.YamlSerDe;
+import com.markelliot.gradle.versions.api.ReportEntry;
+import com.markelliot.gradle.versions.api.ReportSection;
 import com.markelliot.gradle.versions.props.VersionsProps;
 import java.io.File;
 import java.util.*;
@@ -9,11 +9,16 @@ import java.util.stream.Collectors;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.TaskAction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public abstract class UpdateVersionsPropsTask extends DefaultTask {
+    private static final Logger log = LoggerFactory.getLogger(UpdateVersionsPropsTask.class);
 
     @InputFile
     abstract RegularFileProperty getVersionsProps();
@@ -21,68 +26,52 @@ public abstract class UpdateVersionsPropsTask extends DefaultTask {
     @InputFiles
     abstract ConfigurableFileCollection getReports();
 
+    /** Collects the sections of the build's markdown report. */
+    @Internal
+    abstract Property<MarkdownReportService> getReportService();
+
     @TaskAction
     public final void taskAction() {
-        if (!getProject().equals(getProject().getRootProject())) {
-            getLogger().warn("Can only run updateVersionsProps on the root project");
-            return;
-        }
-
         File versionPropsFile = getVersionsProps().getAsFile().get();
-        // collect all the update recommendations.
-        List<UpdateReport> reports =
-                getReports().getFiles().stream()
-                        .map(file -> YamlSerDe.deserialize(file.toPath(), UpdateReport.class))
-                        .collect(Collectors.toUnmodifiableList());
-
-        // merge recommendations
-        Map<String, String> updateRecs = mergeDependencyUpdates(reports);
+        // collect and merge all the update recommendations
+        Map<String, String> updateRecs =
+                ReportAggregator.dependencyUpdates(getReports().getFiles());
 
         // update versions.props
         VersionsProps versionsProps = VersionsProps.from(versionPropsFile);
-        Set<VersionsProps.UpdatedLine> updates = new LinkedHashSet<>();
-        updateRecs.forEach((k, v) -> versionsProps.update(k, v).ifPresent(updates::add));
-        versionsProps.to(versionPropsFile);
-
-        // markdown output
-        if (!updates.isEmpty()) {
-            Reports.appendMarkdownReport(
-                    getProject().getBuildDir(),
-                    "## Updated Dependencies\n"
-                            + updates.stream()
-                                    .map(
-                                            u ->
-                                                    String.format(
-                                                            " * `%s %s -> %s`\n",
-                                                            u.dependency(),
-                                                            u.oldVersion(),
-                                                            u.newVersion()))
-                                    .collect(Collectors.joining()));
-        }
-    }
-
-    private Map<String, String> mergeDependencyUpdates(List<UpdateReport> reports) {
-        Map<String, String> updateRecs = new HashMap<>();
-        reports.stream()
-                .flatMap(report -> report.dependencyUpdates().stream())
+        VersionsProps.UpdateResult result = versionsProps.updateAll(updateRecs);
+        result.unmatched().forEach(id -> log.info("No matching pattern for '{}'", id));
+        result.conflicts()
                 .forEach(
-                        rec -> {
-                            String identifier = rec.group() + ":" + rec.name();
-                            if (updateRecs.containsKey(identifier)) {
-                                if (!updateRecs.get(identifier).equals(rec.latestVersion())) {
-                                    getLogger()
-                                            .warn(
-                                                    "Found conflicting version recommendation for '"
-                                                            + identifier
-                                                            + "'");
+                        conflict ->
+                                log.warn(
+                                        "Found conflicting version recommendations for '{}': {}",
+                                        conflict.pattern(),
+                                        conflict.recommendations()));
+        List<VersionsProps.UpdatedLine> updates = result.updated();
+        updates.forEach(u -> log.info("Setting {} = {}", u.dependency(), u.newVersion()));
+        if (!updates.isEmpty()) {
+            versionsProps.to(versionPropsFile);
 
-                                    // remove so we ignore the conflict
-                                    updateRecs.remove(identifier);
-                                }
-                            } else {
-                                updateRecs.put(identifier, rec.latestVersion());
-                            }
-                        });
-        return updateRecs;
+            // markdown output
+            getReportService()
+                    .get()
+                    .addSection(
+                            ReportSection.builder()
+                                    .title("Updated Dependencies")
+                                    .addAllEntries(
+                                            updates.stream()
+                                                    .map(
+                                                            u ->
+                                                                    ReportEntry.builder()
+                                                                            .name(u.dependency())
+                                                                            .oldVersion(
+                                                                                    u.oldVersion())
+                                                                            .newVersion(
+                                                                                    u.newVersion())
+                                                                            .build())
+                                                    .collect(Collectors.toList()))
+                                    .build());
+        }
     }
 }
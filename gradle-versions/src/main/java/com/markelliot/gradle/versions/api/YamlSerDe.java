@@ -17,6 +17,7 @@
 package com.markelliot.gradle.versions.api;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -27,6 +28,7 @@ import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
@@ -68,6 +70,11 @@ public final class YamlSerDe {
         }
     }
 
+    /** Returns a streaming parser over the YAML document in {@code in}. */
+    public static JsonParser parser(InputStream in) throws IOException {
+        return mapper.getFactory().createParser(in);
+    }
+
     public static <T> T deserialize(Path path, Class<T> type) {
         try {
             return deserialize(Files.readString(path), type);
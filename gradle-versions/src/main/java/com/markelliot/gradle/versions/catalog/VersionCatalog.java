@@ -0,0 +1,501 @@
+/*
+ * (c) Copyright 2021 Mark Elliot. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.markelliot.gradle.versions.catalog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import org.immutables.value.Value;
+
+/**
+ * A Gradle version catalog ({@code libs.versions.toml}), edited in place.
+ *
+ * <p>The catalog is scanned line by line, recording the spans of the versions declared in its
+ * {@code [versions]}, {@code [libraries]} and {@code [plugins]} tables. Catalog entries are always
+ * single-line (TOML inline tables cannot span lines), so no general TOML parser is needed. Writing
+ * splices updated versions into the original text, preserving comments, ordering and formatting.
+ */
+public final class VersionCatalog {
+    private final String content;
+    // [versions] entries by name
+    private final Map<String, Span> versions;
+    private final List<Entry> libraries;
+    private final List<Entry> plugins;
+    // updated spans by start offset
+    private final TreeMap<Integer, Span> changed = new TreeMap<>();
+
+    @Value.Immutable
+    public interface UpdatedVersion {
+        /** The module or plugin id, or {@code versions.<name>} for a shared version. */
+        String key();
+
+        String oldVersion();
+
+        String newVersion();
+    }
+
+    @Value.Immutable
+    public interface Conflict {
+        /** The name of the shared {@code [versions]} entry. */
+        String versionRef();
+
+        /**
+         * The disagreeing recommendations, keyed by module or plugin id, including those for
+         * entries of the other table sharing the version.
+         */
+        Map<String, String> recommendations();
+    }
+
+    @Value.Immutable
+    public interface UpdateResult {
+        List<UpdatedVersion> updated();
+
+        /** Shared versions left untouched because the entries referencing them disagreed. */
+        List<Conflict> conflicts();
+    }
+
+    private VersionCatalog(
+            String content,
+            Map<String, Span> versions,
+            List<Entry> libraries,
+            List<Entry> plugins) {
+        this.content = content;
+        this.versions = versions;
+        this.libraries = libraries;
+        this.plugins = plugins;
+    }
+
+    /**
+     * Applies {@code group:name -> version} recommendations to the {@code [libraries]} table.
+     * Libraries using {@code version.ref} update the referenced {@code [versions]} entry (and so
+     * every other library and plugin sharing it), unless the entries sharing it are recommended
+     * different versions, taking {@code pluginUpdates} into account for plugins.
+     */
+    public UpdateResult updateLibraries(
+            Map<String, String> updates, Map<String, String> pluginUpdates) {
+        return update(libraries, updates, plugins, pluginUpdates);
+    }
+
+    /**
+     * Applies {@code plugin id -> version} recommendations to the {@code [plugins]} table. Plugins
+     * using {@code version.ref} update the referenced {@code [versions]} entry (and so every other
+     * plugin and library sharing it), unless the entries sharing it are recommended different
+     * versions, taking {@code libraryUpdates} into account for libraries.
+     */
+    public UpdateResult updatePlugins(
+            Map<String, String> updates, Map<String, String> libraryUpdates) {
+        return update(plugins, updates, libraries, libraryUpdates);
+    }
+
+    private UpdateResult update(
+            List<Entry> entries,
+            Map<String, String> updates,
+            List<Entry> otherEntries,
+            Map<String, String> otherUpdates) {
+        ImmutableUpdateResult.Builder result = ImmutableUpdateResult.builder();
+        // recommendations for entries that share a [versions] entry, by its name
+        Map<String, Map<String, String>> recsByRef = new TreeMap<>();
+        for (Entry entry : entries) {
+            String version = updates.get(entry.coordinate);
+            if (version == null) {
+                continue;
+            }
+            if (entry.versionRef != null) {
+                recsByRef
+                        .computeIfAbsent(entry.versionRef, unused -> new TreeMap<>())
+                        .put(entry.coordinate, version);
+            } else {
+                set(entry.coordinate, entry.version, version).ifPresent(result::addUpdated);
+            }
+        }
+
+        recsByRef.forEach(
+                (ref, recs) -> {
+                    Span span = versions.get(ref);
+                    if (span == null) {
+                        return;
+                    }
+                    // entries of the other table sharing the version must agree too, as it is
+                    // updated for them as well
+                    Map<String, String> sharedRecs = new TreeMap<>(recs);
+                    for (Entry other : otherEntries) {
+                        String otherVersion = otherUpdates.get(other.coordinate);
+                        if (ref.equals(other.versionRef) && otherVersion != null) {
+                            sharedRecs.putIfAbsent(other.coordinate, otherVersion);
+                        }
+                    }
+                    Set<String> distinct = new HashSet<>(sharedRecs.values());
+                    if (distinct.size() > 1) {
+                        result.addConflicts(
+                                ImmutableConflict.builder()
+                                        .versionRef(ref)
+                                        .recommendations(sharedRecs)
+                                        .build());
+                        return;
+                    }
+                    set("versions." + ref, span, distinct.iterator().next())
+                            .ifPresent(result::addUpdated);
+                });
+        return result.build();
+    }
+
+    private Optional<UpdatedVersion> set(String key, Span span, String version) {
+        String oldVersion = text(span);
+        if (oldVersion.equals(version)) {
+            return Optional.empty();
+        }
+        span.replacement = version;
+        changed.put(span.start, span);
+        return Optional.of(
+                ImmutableUpdatedVersion.builder()
+                        .key(key)
+                        .oldVersion(oldVersion)
+                        .newVersion(version)
+                        .build());
+    }
+
+    private String text(Span span) {
+        return span.replacement != null
+                ? span.replacement
+                : content.substring(span.start, span.end);
+    }
+
+    public String writeToString() {
+        StringBuilder result = new StringBuilder(content.length() + 16);
+        int pos = 0;
+        for (Span span : changed.values()) {
+            result.append(content, pos, span.start).append(span.replacement);
+            pos = span.end;
+        }
+        return result.append(content, pos, content.length()).toString();
+    }
+
+    public static VersionCatalog from(File file) {
+        return from(file.toPath());
+    }
+
+    public static VersionCatalog from(Path path) {
+        try {
+            return from(Files.readString(path));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void to(File file) {
+        to(file.toPath());
+    }
+
+    public void to(Path path) {
+        try {
+            Files.writeString(path, writeToString());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static VersionCatalog from(String content) {
+        Map<String, Span> versions = new HashMap<>();
+        List<Entry> libraries = new ArrayList<>();
+        List<Entry> plugins = new ArrayList<>();
+        String table = "";
+        int lineStart = 0;
+        while (lineStart < content.length()) {
+            int lineEnd = content.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = content.length();
+            }
+            LineScanner line = new LineScanner(content, lineStart, lineEnd);
+            line.skipWhitespace();
+            if (line.peek() == '[') {
+                table = line.tableHeader();
+            } else if (line.peek() != '#' && line.peek() != LineScanner.EOL) {
+                Map<String, Span> values = line.keyValue();
+                if (values != null) {
+                    String key = line.key;
+                    switch (table) {
+                        case "versions":
+                            if (values.containsKey("")) {
+                                versions.putIfAbsent(key, values.get(""));
+                            }
+                            break;
+                        case "libraries":
+                            library(content, values).ifPresent(libraries::add);
+                            break;
+                        case "plugins":
+                            plugin(content, values).ifPresent(plugins::add);
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return new VersionCatalog(content, versions, libraries, plugins);
+    }
+
+    /** Reads {@code "<id>:<version>"} or {@code { id = "<id>", version[.ref] = ... }}. */
+    private static Optional<Entry> plugin(String content, Map<String, Span> values) {
+        Span notation = values.get("");
+        if (notation != null) {
+            return fromNotation(content, notation, 1);
+        }
+        return fromTable(content, values, text(content, values.get("id")));
+    }
+
+    /**
+     * Reads {@code "<group>:<name>:<version>"}, or an inline table declaring the module as {@code
+     * module = "<group>:<name>"} or as separate {@code group} and {@code name}, and a {@code
+     * version} or {@code version.ref}.
+     */
+    private static Optional<Entry> library(String content, Map<String, Span> values) {
+        Span notation = values.get("");
+        if (notation != null) {
+            return fromNotation(content, notation, 2);
+        }
+        String module = text(content, values.get("module"));
+        if (module == null && values.containsKey("group") && values.containsKey("name")) {
+            module = text(content, values.get("group")) + ":" + text(content, values.get("name"));
+        }
+        return fromTable(content, values, module);
+    }
+
+    /**
+     * Reads a string notation whose first {@code coordinateParts} colon-separated parts are the
+     * coordinate and whose next part is the version. Notations without a version are skipped.
+     */
+    private static Optional<Entry> fromNotation(
+            String content, Span notation, int coordinateParts) {
+        int versionStart = notation.start;
+        for (int i = 0; i < coordinateParts; i++) {
+            int colon = content.indexOf(':', versionStart);
+            if (colon < 0 || colon >= notation.end) {
+                return Optional.empty();
+            }
+            versionStart = colon + 1;
+        }
+        int versionEnd = content.indexOf(':', versionStart);
+        if (versionEnd < 0 || versionEnd > notation.end) {
+            versionEnd = notation.end;
+        }
+        if (versionEnd == versionStart) {
+            return Optional.empty();
+        }
+        return Optional.of(
+                new Entry(
+                        content.substring(notation.start, versionStart - 1),
+                        new Span(versionStart, versionEnd),
+                        null));
+    }
+
+    /** Entries without a plain version (e.g. rich versions) are skipped. */
+    private static Optional<Entry> fromTable(
+            String content, Map<String, Span> values, String coordinate) {
+        if (coordinate == null) {
+            return Optional.empty();
+        }
+        Span ref = values.get("version.ref");
+        if (ref != null) {
+            return Optional.of(new Entry(coordinate, null, text(content, ref)));
+        }
+        Span version = values.get("version");
+        return version == null
+                ? Optional.empty()
+                : Optional.of(new Entry(coordinate, version, null));
+    }
+
+    private static String text(String content, Span span) {
+        return span == null ? null : content.substring(span.start, span.end);
+    }
+
+    /** A catalog entry whose version is either declared inline or referenced by name. */
+    private static final class Entry {
+        private final String coordinate;
+        private final Span version;
+        private final String versionRef;
+
+        Entry(String coordinate, Span version, String versionRef) {
+            this.coordinate = coordinate;
+            this.version = version;
+            this.versionRef = versionRef;
+        }
+    }
+
+    /** The span of a string value's contents, excluding its quotes. */
+    private static final class Span {
+        private final int start;
+        private final int end;
+        private String replacement;
+
+        Span(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /** Reads the table headers and key/value pairs of a single line. */
+    private static final class LineScanner {
+        static final char EOL = '\n';
+
+        private final String content;
+        private final int end;
+        private int pos;
+        private String key;
+
+        LineScanner(String content, int start, int end) {
+            this.content = content;
+            this.pos = start;
+            this.end = end;
+        }
+
+        char peek() {
+            return pos < end ? content.charAt(pos) : EOL;
+        }
+
+        void skipWhitespace() {
+            while (pos < end && Character.isWhitespace(content.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        String tableHeader() {
+            int close = content.indexOf(']', pos);
+            if (close < 0 || close > end) {
+                return "";
+            }
+            return content.substring(pos, close).replace("[", "").trim();
+        }
+
+        /**
+         * Reads {@code key = value}, returning the string values it contains keyed by their dotted
+         * path within the value ({@code ""} for a plain string), or null if the line is not a
+         * key/value pair of strings and inline tables.
+         */
+        Map<String, Span> keyValue() {
+            key = dottedKey();
+            if (key == null || !consume('=')) {
+                return null;
+            }
+            Map<String, Span> values = new HashMap<>();
+            return value("", values) ? values : null;
+        }
+
+        private boolean value(String path, Map<String, Span> values) {
+            skipWhitespace();
+            char ch = peek();
+            if (ch == '"' || ch == '\'') {
+                Span string = string();
+                if (string == null) {
+                    return false;
+                }
+                values.put(path, string);
+                return true;
+            }
+            if (ch != '{') {
+                return false;
+            }
+            pos++;
+            skipWhitespace();
+            if (consume('}')) {
+                return true;
+            }
+            do {
+                String innerKey = dottedKey();
+                if (innerKey == null
+                        || !consume('=')
+                        || !value(path.isEmpty() ? innerKey : path + "." + innerKey, values)) {
+                    return false;
+                }
+            } while (consume(','));
+            return consume('}');
+        }
+
+        /** Reads a bare, quoted or dotted key, normalised to its dot-separated segments. */
+        private String dottedKey() {
+            StringBuilder result = new StringBuilder();
+            do {
+                skipWhitespace();
+                String segment;
+                char ch = peek();
+                if (ch == '"' || ch == '\'') {
+                    Span quoted = string();
+                    if (quoted == null) {
+                        return null;
+                    }
+                    segment = content.substring(quoted.start, quoted.end);
+                } else {
+                    int start = pos;
+                    while (pos < end && isBareKeyChar(content.charAt(pos))) {
+                        pos++;
+                    }
+                    if (pos == start) {
+                        return null;
+                    }
+                    segment = content.substring(start, pos);
+                }
+                if (result.length() > 0) {
+                    result.append('.');
+                }
+                result.append(segment);
+                skipWhitespace();
+            } while (consume('.'));
+            return result.toString();
+        }
+
+        private Span string() {
+            char quote = content.charAt(pos);
+            int start = pos + 1;
+            int close = start;
+            while (close < end && content.charAt(close) != quote) {
+                // versions and coordinates never contain escapes, but skip them all the same
+                close += quote == '"' && content.charAt(close) == '\\' ? 2 : 1;
+            }
+            if (close >= end) {
+                return null;
+            }
+            pos = close + 1;
+            return new Span(start, close);
+        }
+
+        private boolean consume(char expected) {
+            skipWhitespace();
+            if (peek() != expected) {
+                return false;
+            }
+            pos++;
+            return true;
+        }
+
+        private static boolean isBareKeyChar(char ch) {
+            return (ch >= 'a' && ch <= 'z')
+                    || (ch >= 'A' && ch <= 'Z')
+                    || (ch >= '0' && ch <= '9')
+                    || ch == '-'
+                    || ch == '_';
+        }
+    }
+}
@@ -16,96 +16,171 @@
 
 package com.markelliot.gradle.versions.props;
 
+import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableSet;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 /** Adapted from {@code nebula.dependency-recommender}. */
 public final class FuzzyPatternResolver {
-    private final Set<String> identifiers;
-
+    private final Set<String> exactMatches;
+    private final GlobTrie globs;
+
+    /**
+     * Indexes {@code identifiers} up front: exact identifiers into a set, and globs into a trie
+     * keyed by their literal prefix (the characters before the first {@code *}), so that lookups
+     * don't recompute either.
+     */
     public FuzzyPatternResolver(Set<String> identifiers) {
-        this.identifiers = identifiers;
+        this.exactMatches = exactMatches(identifiers);
+        this.globs = globs(identifiers);
     }
 
-    private Set<String> exactMatches() {
+    private static Set<String> exactMatches(Set<String> identifiers) {
         return identifiers.stream()
                 .filter(name -> !name.contains("*"))
                 .collect(ImmutableSet.toImmutableSet());
     }
 
-    private List<Glob> globs() {
-        List<Glob> cache = new ArrayList<>();
+    private static GlobTrie globs(Set<String> identifiers) {
+        GlobTrie trie = new GlobTrie();
         for (String name : identifiers) {
             if (name.contains("*")) {
-                cache.add(Glob.compile(name));
+                trie.add(Glob.compile(name));
             }
         }
-        // Sorting in order to prefer more specific globs (with more non-* characters), see the Glob
-        // class below.
-        // The more specific globs will end up at the beginning of the array.
-        Collections.sort(cache);
-        return cache;
+        trie.sort();
+        return trie;
     }
 
     public Optional<String> patternFor(String key) {
         // Always prefer exact matches (which should be handled separately).
-        if (exactMatches().contains(key)) {
+        if (exactMatches.contains(key)) {
             return Optional.of(key);
         }
 
-        for (Glob glob : globs()) {
-            if (glob.matches(key)) {
-                return Optional.of(glob.rawPattern);
+        return globs.bestMatch(key).map(glob -> glob.rawPattern);
+    }
+
+    /**
+     * Globs indexed by their literal prefix. A lookup walks the key down the trie, so only globs
+     * whose prefix is a prefix of the key are ever tested.
+     */
+    private static final class GlobTrie {
+        private final Node root = new Node();
+
+        void add(Glob glob) {
+            Node node = root;
+            for (int i = 0; i < glob.prefix().length(); i++) {
+                node = node.children.computeIfAbsent(glob.prefix().charAt(i), c -> new Node());
+            }
+            node.globs.add(glob);
+        }
+
+        void sort() {
+            Deque<Node> pending = new ArrayDeque<>(List.of(root));
+            while (!pending.isEmpty()) {
+                Node node = pending.pop();
+                Collections.sort(node.globs);
+                pending.addAll(node.children.values());
+            }
+        }
+
+        /**
+         * Returns the most specific glob (the one with the most non-* characters) that matches
+         * {@code key}, preferring globs with a longer literal prefix between equally specific ones.
+         */
+        Optional<Glob> bestMatch(String key) {
+            List<Node> path = new ArrayList<>();
+            Node node = root;
+            path.add(node);
+            for (int i = 0; i < key.length(); i++) {
+                node = node.children.get(key.charAt(i));
+                if (node == null) {
+                    break;
+                }
+                path.add(node);
+            }
+
+            Glob best = null;
+            for (int i = path.size() - 1; i >= 0; i--) {
+                for (Glob glob : path.get(i).globs) {
+                    if (best != null && glob.weight <= best.weight) {
+                        // globs are sorted most specific first
+                        break;
+                    }
+                    if (glob.matches(key)) {
+                        best = glob;
+                        break;
+                    }
+                }
             }
+            return Optional.ofNullable(best);
         }
 
-        return Optional.empty();
+        private static final class Node {
+            private final Map<Character, Node> children = new HashMap<>();
+            private final List<Glob> globs = new ArrayList<>();
+        }
     }
 
     private static final class Glob implements Comparable<Glob> {
-        private final Pattern pattern;
         private final String rawPattern;
+        // the literal tokens between *s; the first is the prefix and the last the suffix
+        private final String[] tokens;
         private final int weight;
 
-        Glob(Pattern pattern, String rawPattern, int weight) {
-            this.pattern = pattern;
+        Glob(String rawPattern, String[] tokens, int weight) {
             this.rawPattern = rawPattern;
+            this.tokens = tokens;
             this.weight = weight;
         }
 
         private static Glob compile(String glob) {
-            StringBuilder patternBuilder = new StringBuilder();
-            boolean first = true;
+            String[] tokens = Splitter.on('*').splitToList(glob).toArray(new String[0]);
             int weight = 0;
-
-            for (String token : glob.split("\\*", -1)) {
-                if (first) {
-                    first = false;
-                } else {
-                    patternBuilder.append(".*?");
-                }
-
+            for (String token : tokens) {
                 weight += token.length();
-                patternBuilder.append(Pattern.quote(token));
             }
+            return new Glob(glob, tokens, weight);
+        }
 
-            Pattern pattern = Pattern.compile(patternBuilder.toString());
-
-            return new Glob(pattern, glob, weight);
+        String prefix() {
+            return tokens[0];
         }
 
         boolean matches(String key) {
-            return pattern.matcher(key).matches();
+            String prefix = tokens[0];
+            String suffix = tokens[tokens.length - 1];
+            if (key.length() < prefix.length() + suffix.length()
+                    || !key.startsWith(prefix)
+                    || !key.endsWith(suffix)) {
+                return false;
+            }
+            // greedily place each middle token at its earliest position between prefix and suffix
+            int from = prefix.length();
+            int to = key.length() - suffix.length();
+            for (int i = 1; i < tokens.length - 1; i++) {
+                int index = key.indexOf(tokens[i], from);
+                if (index < 0 || index + tokens[i].length() > to) {
+                    return false;
+                }
+                from = index + tokens[i].length();
+            }
+            return true;
         }
 
         @Override
         public int compareTo(Glob other) {
-            return Integer.compare(other.weight, weight);
+            int byWeight = Integer.compare(other.weight, weight);
+            return byWeight != 0 ? byWeight : rawPattern.compareTo(other.rawPattern);
         }
     }
 }
@@ -16,28 +16,41 @@
 
 package com.markelliot.gradle.versions.props;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
 import org.immutables.value.Value;
 
+/**
+ * A versions.props file, kept as its original bytes plus the spans of its version lines.
+ *
+ * <p>Only lines whose version is updated are materialised, and writing copies every other byte
+ * straight through, so untouched lines (including their whitespace, comments and line endings) are
+ * preserved exactly.
+ */
 public final class VersionsProps {
-    private static final Pattern COMMENT_OR_EMPTY = Pattern.compile("(\\s*#.*|\\s*)");
-    private static final Pattern VERSION_LINE =
-            Pattern.compile(
-                    "(?<identifier>[^#\\s:]+:[^#\\s]+)\\s*=\\s*(?<version>[^#\\s]+)(\\s*#\\s*(?<comment>.+))?");
-
-    private final List<Line> lines;
+    private final byte[] content;
+    // version lines in file order
+    private final List<VersionLine> lines;
+    // index into lines of the (first) version line declaring each identifier
+    private final Map<String, Integer> lineIndex;
+    // indices into lines of the version lines that have been updated
+    private final BitSet changed = new BitSet();
     private final FuzzyPatternResolver resolver;
 
     @Value.Immutable
@@ -49,51 +62,101 @@ public final class VersionsProps {
         String newVersion();
     }
 
-    private VersionsProps(List<Line> lines, FuzzyPatternResolver resolver) {
+    @Value.Immutable
+    public interface Conflict {
+        /** The pattern of the versions.props line that the recommendations resolved to. */
+        String pattern();
+
+        /** The disagreeing recommendations, keyed by identifier. */
+        Map<String, String> recommendations();
+    }
+
+    @Value.Immutable
+    public interface UpdateResult {
+        /** Lines whose version changed, in file order. */
+        List<UpdatedLine> updated();
+
+        /** Patterns left untouched because the identifiers resolving to them disagreed. */
+        List<Conflict> conflicts();
+
+        /** Identifiers that matched no pattern. */
+        List<String> unmatched();
+    }
+
+    private VersionsProps(byte[] content, List<VersionLine> lines, Map<String, Integer> lineIndex) {
+        this.content = content;
         this.lines = lines;
-        this.resolver = resolver;
+        this.lineIndex = lineIndex;
+        this.resolver = new FuzzyPatternResolver(lineIndex.keySet());
     }
 
     public Optional<UpdatedLine> update(String identifier, String version) {
-        Optional<String> maybeMatch = resolver.patternFor(identifier);
-        if (maybeMatch.isEmpty()) {
-            System.out.println("No matching pattern for '" + identifier + "'");
-            return Optional.empty();
-        }
+        return updateAll(Map.of(identifier, version)).updated().stream().findFirst();
+    }
+
+    /**
+     * Applies the {@code identifier -> version} recommendations in {@code updates} in a single
+     * pass.
+     *
+     * <p>Each identifier is resolved to its best matching pattern first. When several identifiers
+     * resolve to the same pattern (i.e. a glob) but recommend different versions, that line is left
+     * as is and reported as a conflict.
+     */
+    public UpdateResult updateAll(Map<String, String> updates) {
+        ImmutableUpdateResult.Builder result = ImmutableUpdateResult.builder();
+        // recommendations grouped by the index of the line they resolve to, in file order
+        Map<Integer, Map<String, String>> recsByLine = new TreeMap<>();
+        updates.forEach(
+                (identifier, version) -> {
+                    Optional<String> maybeMatch = resolver.patternFor(identifier);
+                    if (maybeMatch.isEmpty()) {
+                        result.addUnmatched(identifier);
+                        return;
+                    }
+                    recsByLine
+                            .computeIfAbsent(lineIndex.get(maybeMatch.get()), i -> new TreeMap<>())
+                            .put(identifier, version);
+                });
+
+        recsByLine.forEach(
+                (index, recs) -> {
+                    VersionLine versionLine = lines.get(index);
+                    Set<String> versions = new HashSet<>(recs.values());
+                    if (versions.size() > 1) {
+                        result.addConflicts(
+                                ImmutableConflict.builder()
+                                        .pattern(versionLine.identifier)
+                                        .recommendations(recs)
+                                        .build());
+                        return;
+                    }
 
-        String bestMatch = maybeMatch.get();
-        int i = 0;
-        for (Line line : lines) {
-            if (line.type() == LineType.Version) {
-                VersionLine versionLine = (VersionLine) line;
-                if (versionLine.identifier().equals(bestMatch)) {
-                    if (versionLine.version().equals(version)) {
+                    String version = versions.iterator().next();
+                    String oldVersion = version(versionLine);
+                    if (oldVersion.equals(version)) {
                         // found best match but version is already what we expect
-                        return Optional.empty();
+                        return;
                     }
-                    System.out.printf("Setting %s = %s\n", bestMatch, version);
-                    lines.set(
-                            i,
-                            ImmutableVersionLine.builder()
-                                    .from(versionLine)
-                                    .version(version)
-                                    .build());
-                    return Optional.of(
+                    versionLine.newVersion = version;
+                    changed.set(index);
+                    result.addUpdated(
                             ImmutableUpdatedLine.builder()
-                                    .dependency(bestMatch)
-                                    .oldVersion(versionLine.version())
+                                    .dependency(versionLine.identifier)
+                                    .oldVersion(oldVersion)
                                     .newVersion(version)
                                     .build());
-                }
-            }
-            i++;
-        }
-
-        return Optional.empty();
+                });
+        return result.build();
     }
 
     public String writeToString() {
-        return lines.stream().map(Line::emit).collect(Collectors.joining("\n")) + "\n";
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length);
+        try {
+            writeTo(out);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
     }
 
     public static VersionsProps from(File file) {
@@ -102,7 +165,7 @@ public final class VersionsProps {
 
     public static VersionsProps from(Path path) {
         try {
-            return from(Files.readAllLines(path));
+            return parse(Files.readAllBytes(path));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -113,92 +176,145 @@ public final class VersionsProps {
     }
 
     public void to(Path path) {
-        try {
-            Files.writeString(
-                    path,
-                    writeToString(),
-                    StandardOpenOption.CREATE,
-                    StandardOpenOption.TRUNCATE_EXISTING);
+        try (OutputStream out =
+                new BufferedOutputStream(
+                        Files.newOutputStream(
+                                path,
+                                StandardOpenOption.CREATE,
+                                StandardOpenOption.TRUNCATE_EXISTING))) {
+            writeTo(out);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
     public static VersionsProps from(Iterable<String> in) {
-        List<Line> parsedLines = new ArrayList<>();
-        Set<String> identifiers = new HashSet<>();
+        StringBuilder content = new StringBuilder();
         for (String line : in) {
-            if (isCommentOrEmpty(line)) {
-                parsedLines.add(ImmutableNonVersionLine.builder().content(line).build());
-            } else {
-                Matcher matcher = VERSION_LINE.matcher(line);
-                if (!matcher.matches()) {
-                    throw new IllegalArgumentException("Invalid version line '" + line + "'");
-                }
-                String identifier = matcher.group("identifier");
-                String version = matcher.group("version");
-                parsedLines.add(
-                        ImmutableVersionLine.builder()
-                                .identifier(identifier)
-                                .version(version)
-                                .comment(Optional.ofNullable(matcher.group("comment")))
-                                .build());
-                identifiers.add(identifier);
-            }
+            content.append(line).append('\n');
         }
-        return new VersionsProps(parsedLines, new FuzzyPatternResolver(identifiers));
+        return parse(content.toString().getBytes(StandardCharsets.UTF_8));
     }
 
-    private static boolean isCommentOrEmpty(String line) {
-        return COMMENT_OR_EMPTY.matcher(line).matches();
+    private void writeTo(OutputStream out) throws IOException {
+        int pos = 0;
+        for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+            VersionLine line = lines.get(i);
+            out.write(content, pos, line.versionStart - pos);
+            out.write(line.newVersion.getBytes(StandardCharsets.UTF_8));
+            pos = line.versionEnd;
+        }
+        out.write(content, pos, content.length - pos);
     }
 
-    enum LineType {
-        NonVersion,
-        Version
+    private String version(VersionLine line) {
+        return line.newVersion != null
+                ? line.newVersion
+                : new String(
+                        content,
+                        line.versionStart,
+                        line.versionEnd - line.versionStart,
+                        StandardCharsets.UTF_8);
     }
 
-    interface Line {
-        String emit();
-
-        LineType type();
+    /**
+     * Scans {@code content} line by line. Lines are either empty, whitespace, comments ({@code #
+     * ...}), or version lines of the form {@code group:name = version [# comment]}. Every delimiter
+     * is ASCII, so the scan works directly on the UTF-8 bytes.
+     */
+    private static VersionsProps parse(byte[] content) {
+        List<VersionLine> lines = new ArrayList<>();
+        Map<String, Integer> lineIndex = new HashMap<>();
+        int lineStart = 0;
+        while (lineStart < content.length) {
+            int lineEnd = lineStart;
+            while (lineEnd < content.length && content[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int first = skipWhitespace(content, lineStart, lineEnd);
+            if (first < lineEnd && content[first] != '#') {
+                VersionLine line = parseVersionLine(content, lineStart, lineEnd);
+                lines.add(line);
+                lineIndex.putIfAbsent(line.identifier, lines.size() - 1);
+            }
+            lineStart = lineEnd + 1;
+        }
+        return new VersionsProps(content, lines, lineIndex);
     }
 
-    @Value.Immutable
-    interface NonVersionLine extends Line {
-        String content();
-
-        @Value.Derived
-        @Override
-        default String emit() {
-            return content();
+    private static VersionLine parseVersionLine(byte[] content, int start, int end) {
+        int group = scanToken(content, start, end, true);
+        if (group == start || group == end || content[group] != ':') {
+            throw invalidLine(content, start, end);
+        }
+        int identifierEnd = scanToken(content, group + 1, end, false);
+        if (identifierEnd == group + 1) {
+            throw invalidLine(content, start, end);
         }
+        int equals = skipWhitespace(content, identifierEnd, end);
+        if (equals == end || content[equals] != '=') {
+            throw invalidLine(content, start, end);
+        }
+        int versionStart = skipWhitespace(content, equals + 1, end);
+        int versionEnd = scanToken(content, versionStart, end, false);
+        if (versionEnd == versionStart) {
+            throw invalidLine(content, start, end);
+        }
+        int rest = skipWhitespace(content, versionEnd, end);
+        if (rest != end && content[rest] != '#') {
+            throw invalidLine(content, start, end);
+        }
+        return new VersionLine(
+                new String(content, start, identifierEnd - start, StandardCharsets.UTF_8),
+                versionStart,
+                versionEnd);
+    }
 
-        @Value.Default
-        @Override
-        default LineType type() {
-            return LineType.NonVersion;
+    /** Returns the end of the token at {@code start}, which stops at whitespace, '#' and '='. */
+    private static int scanToken(byte[] content, int start, int end, boolean stopAtColon) {
+        int pos = start;
+        while (pos < end) {
+            byte b = content[pos];
+            if (isWhitespace(b) || b == '#' || b == '=' || (stopAtColon && b == ':')) {
+                break;
+            }
+            pos++;
         }
+        return pos;
     }
 
-    @Value.Immutable
-    interface VersionLine extends Line {
-        String identifier();
+    private static int skipWhitespace(byte[] content, int start, int end) {
+        int pos = start;
+        while (pos < end && isWhitespace(content[pos])) {
+            pos++;
+        }
+        return pos;
+    }
 
-        String version();
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+    }
 
-        Optional<String> comment();
+    private static IllegalArgumentException invalidLine(byte[] content, int start, int end) {
+        // drop the '\r' of a CRLF line ending from the message
+        int trimmedEnd = end > start && content[end - 1] == '\r' ? end - 1 : end;
+        return new IllegalArgumentException(
+                "Invalid version line '"
+                        + new String(content, start, trimmedEnd - start, StandardCharsets.UTF_8)
+                        + "'");
+    }
 
-        @Value.Derived
-        @Override
-        default String emit() {
-            return identifier() + " = " + version() + comment().map(c -> " # " + c).orElse("");
-        }
+    private static final class VersionLine {
+        private final String identifier;
+        // span of the version in the original content
+        private final int versionStart;
+        private final int versionEnd;
+        private String newVersion;
 
-        @Value.Default
-        @Override
-        default LineType type() {
-            return LineType.Version;
+        VersionLine(String identifier, int versionStart, int versionEnd) {
+            this.identifier = identifier;
+            this.versionStart = versionStart;
+            this.versionEnd = versionEnd;
         }
     }
 }
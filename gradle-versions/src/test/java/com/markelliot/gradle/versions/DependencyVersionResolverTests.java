@@ -0,0 +1,37 @@
+package com.markelliot.gradle.versions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Proxy;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.junit.jupiter.api.Test;
+
+final class DependencyVersionResolverTests {
+    @Test
+    public void testRepositoryName() {
+        assertThat(DependencyVersionResolver.repositoryName(component(RepositoryAware.class)))
+                .hasValue("central");
+    }
+
+    @Test
+    public void testRepositoryNameUnavailable() {
+        assertThat(DependencyVersionResolver.repositoryName(component())).isEmpty();
+    }
+
+    private static ResolvedComponentResult component(Class<?>... interfaces) {
+        Class<?>[] all = new Class<?>[interfaces.length + 1];
+        all[0] = ResolvedComponentResult.class;
+        System.arraycopy(interfaces, 0, all, 1, interfaces.length);
+        return (ResolvedComponentResult)
+                Proxy.newProxyInstance(
+                        DependencyVersionResolverTests.class.getClassLoader(),
+                        all,
+                        (proxy, method, args) ->
+                                method.getName().equals("getRepositoryName") ? "central" : null);
+    }
+
+    /** Mirrors Gradle's internal view of resolved components. */
+    public interface RepositoryAware {
+        String getRepositoryName();
+    }
+}
@@ -0,0 +1,50 @@
+package com.markelliot.gradle.versions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.markelliot.gradle.versions.props.FuzzyPatternResolver;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+final class FuzzyPatternResolverTests {
+    private final FuzzyPatternResolver resolver =
+            new FuzzyPatternResolver(
+                    Set.of(
+                            "com.fasterxml.jackson.core:jackson-databind",
+                            "com.fasterxml.jackson.*:*",
+                            "com.fasterxml.*:*",
+                            "com.*.jackson.dataformat:*-yaml",
+                            "org.slf4j:*",
+                            "org.slf4j:slf4j-*",
+                            "*:guava"));
+
+    @Test
+    public void testPrefersExactMatches() {
+        assertThat(resolver.patternFor("com.fasterxml.jackson.core:jackson-databind"))
+                .hasValue("com.fasterxml.jackson.core:jackson-databind");
+    }
+
+    @Test
+    public void testPrefersMostSpecificGlob() {
+        assertThat(resolver.patternFor("com.fasterxml.jackson.core:jackson-core"))
+                .hasValue("com.fasterxml.jackson.*:*");
+        assertThat(resolver.patternFor("com.fasterxml.woodstox:woodstox-core"))
+                .hasValue("com.fasterxml.*:*");
+        assertThat(resolver.patternFor("org.slf4j:slf4j-api")).hasValue("org.slf4j:slf4j-*");
+        assertThat(resolver.patternFor("org.slf4j:jul-to-slf4j")).hasValue("org.slf4j:*");
+    }
+
+    @Test
+    public void testMatchesWildcardsAnywhere() {
+        assertThat(resolver.patternFor("com.fasterxml.jackson.dataformat:jackson-dataformat-yaml"))
+                .hasValue("com.*.jackson.dataformat:*-yaml");
+        assertThat(resolver.patternFor("com.google.guava:guava")).hasValue("*:guava");
+    }
+
+    @Test
+    public void testNoMatch() {
+        assertThat(resolver.patternFor("org.slf4j2:slf4j-api")).isEmpty();
+        assertThat(resolver.patternFor("com.google.guava:failureaccess")).isEmpty();
+        assertThat(resolver.patternFor("org.slf4j")).isEmpty();
+    }
+}
@@ -0,0 +1,127 @@
+package com.markelliot.gradle.versions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.markelliot.gradle.versions.GradleVersions.GradleChannelDetails;
+import com.markelliot.gradle.versions.GradleVersions.ReleaseChannel;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class GradleVersionsTests {
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+    @TempDir Path cacheDir;
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+    private String baseUrl;
+
+    @BeforeEach
+    public void before() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(
+                "/versions/",
+                exchange -> {
+                    String channel = exchange.getRequestURI().getPath().substring(10);
+                    String etag = exchange.getRequestHeaders().getFirst("If-None-Match");
+                    requests.add(channel + (etag != null ? " " + etag : ""));
+                    if (("\"" + channel + "\"").equals(etag)) {
+                        exchange.sendResponseHeaders(304, -1);
+                        exchange.close();
+                        return;
+                    }
+                    byte[] body =
+                            channel.equals("current")
+                                    ? details("8.7").getBytes(StandardCharsets.UTF_8)
+                                    : details("8.8-rc-1").getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().add("ETag", "\"" + channel + "\"");
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort() + "/versions";
+    }
+
+    @AfterEach
+    public void after() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testFetchesChannels() {
+        Map<ReleaseChannel, GradleChannelDetails> details =
+                versions(Duration.ofHours(1), NOW)
+                        .forChannels(
+                                Set.of(ReleaseChannel.CURRENT, ReleaseChannel.RELEASE_CANDIDATE));
+
+        assertThat(details.get(ReleaseChannel.CURRENT).version()).isEqualTo("8.7");
+        assertThat(details.get(ReleaseChannel.RELEASE_CANDIDATE).version()).isEqualTo("8.8-rc-1");
+        assertThat(details.get(ReleaseChannel.CURRENT).distributionUrl())
+                .isEqualTo("https://services.gradle.org/distributions/gradle-8.7-bin.zip");
+    }
+
+    @Test
+    public void testServesFreshResponsesFromCache() {
+        versions(Duration.ofHours(1), NOW).forChannel(ReleaseChannel.CURRENT);
+        Optional<GradleChannelDetails> cached =
+                versions(Duration.ofHours(1), NOW.plusSeconds(60))
+                        .forChannel(ReleaseChannel.CURRENT);
+
+        assertThat(cached).map(GradleChannelDetails::version).hasValue("8.7");
+        assertThat(requests).containsExactly("current");
+    }
+
+    @Test
+    public void testRevalidatesStaleResponses() {
+        versions(Duration.ofHours(1), NOW).forChannel(ReleaseChannel.CURRENT);
+        Optional<GradleChannelDetails> revalidated =
+                versions(Duration.ofHours(1), NOW.plus(Duration.ofHours(2)))
+                        .forChannel(ReleaseChannel.CURRENT);
+
+        assertThat(revalidated).map(GradleChannelDetails::version).hasValue("8.7");
+        assertThat(requests).containsExactly("current", "current \"current\"");
+    }
+
+    @Test
+    public void testUsesStaleResponseWhenServerUnavailable() {
+        versions(Duration.ofHours(1), NOW).forChannel(ReleaseChannel.CURRENT);
+        server.stop(0);
+
+        assertThat(
+                        versions(Duration.ofHours(1), NOW.plus(Duration.ofHours(2)))
+                                .forChannel(ReleaseChannel.CURRENT))
+                .map(GradleChannelDetails::version)
+                .hasValue("8.7");
+    }
+
+    private GradleVersions versions(Duration ttl, Instant now) {
+        return new GradleVersions(baseUrl, cacheDir, ttl, Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private static String details(String version) {
+        return "{\"version\":\""
+                + version
+                + "\",\"downloadUrl\":\"https://services.gradle.org/distributions/gradle-"
+                + version
+                + "-bin.zip\",\"snapshot\":false}";
+    }
+}
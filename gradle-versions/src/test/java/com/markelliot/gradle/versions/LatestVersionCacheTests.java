@@ -0,0 +1,82 @@
+package com.markelliot.gradle.versions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+final class LatestVersionCacheTests {
+    @Test
+    public void testResolvesEachModuleOnce() {
+        LatestVersionCache cache = new LatestVersionCache();
+        List<Set<String>> requests = new ArrayList<>();
+
+        assertThat(
+                        cache.getLatestVersions(
+                                Set.of("a:a", "b:b"),
+                                modules -> {
+                                    requests.add(modules);
+                                    return Map.of("a:a", "1.0");
+                                }))
+                .containsExactly(Map.entry("a:a", "1.0"));
+        assertThat(
+                        cache.getLatestVersions(
+                                Set.of("a:a", "b:b", "c:c"),
+                                modules -> {
+                                    requests.add(modules);
+                                    return Map.of("c:c", "2.0");
+                                }))
+                .containsOnly(Map.entry("a:a", "1.0"), Map.entry("c:c", "2.0"));
+
+        assertThat(requests).containsExactly(Set.of("a:a", "b:b"), Set.of("c:c"));
+    }
+
+    @Test
+    public void testConcurrentLookupsShareInFlightResolution() throws Exception {
+        LatestVersionCache cache = new LatestVersionCache();
+        AtomicInteger resolutions = new AtomicInteger();
+        CountDownLatch resolving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Map<String, String>> first =
+                CompletableFuture.supplyAsync(
+                        () ->
+                                cache.getLatestVersions(
+                                        Set.of("a:a"),
+                                        modules -> {
+                                            resolutions.incrementAndGet();
+                                            resolving.countDown();
+                                            await(release);
+                                            return Map.of("a:a", "1.0");
+                                        }));
+        resolving.await();
+        CompletableFuture<Map<String, String>> second =
+                CompletableFuture.supplyAsync(
+                        () ->
+                                cache.getLatestVersions(
+                                        Set.of("a:a"),
+                                        modules -> {
+                                            resolutions.incrementAndGet();
+                                            return Map.of("a:a", "2.0");
+                                        }));
+        release.countDown();
+
+        assertThat(first.get()).containsExactly(Map.entry("a:a", "1.0"));
+        assertThat(second.get()).containsExactly(Map.entry("a:a", "1.0"));
+        assertThat(resolutions).hasValue(1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
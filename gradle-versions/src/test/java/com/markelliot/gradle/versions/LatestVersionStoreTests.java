@@ -0,0 +1,109 @@
+package com.markelliot.gradle.versions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class LatestVersionStoreTests {
+    private static final Duration TTL = Duration.ofHours(1);
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+    @TempDir Path tempDir;
+
+    @Test
+    public void testRoundTrip() {
+        Path path = tempDir.resolve("cache/latest-versions.bin");
+        LatestVersionStore store = LatestVersionStore.load(path, TTL, clockAt(NOW));
+        store.put("repos", "a:a", Optional.of("1.0"));
+        store.put("repos", "b:b", Optional.empty());
+        store.flush();
+
+        LatestVersionStore reloaded = LatestVersionStore.load(path, TTL, clockAt(NOW));
+        assertThat(reloaded.get("repos", "a:a")).contains(Optional.of("1.0"));
+        assertThat(reloaded.get("repos", "b:b")).contains(Optional.empty());
+        assertThat(reloaded.get("repos", "c:c")).isEmpty();
+        assertThat(reloaded.get("other-repos", "a:a")).isEmpty();
+    }
+
+    @Test
+    public void testExpiredEntriesAreIgnored() {
+        Path path = tempDir.resolve("latest-versions.bin");
+        LatestVersionStore store = LatestVersionStore.load(path, TTL, clockAt(NOW));
+        store.put("repos", "a:a", Optional.of("1.0"));
+        store.flush();
+
+        assertThat(
+                        LatestVersionStore.load(path, TTL, clockAt(NOW.plus(TTL).minusSeconds(1)))
+                                .get("repos", "a:a"))
+                .contains(Optional.of("1.0"));
+        assertThat(LatestVersionStore.load(path, TTL, clockAt(NOW.plus(TTL))).get("repos", "a:a"))
+                .isEmpty();
+    }
+
+    @Test
+    public void testNotFoundEntriesExpireSooner() {
+        Path path = tempDir.resolve("latest-versions.bin");
+        LatestVersionStore store = LatestVersionStore.load(path, TTL, clockAt(NOW));
+        store.put("repos", "a:a", Optional.of("1.0"));
+        store.put("repos", "b:b", Optional.empty());
+        store.flush();
+
+        LatestVersionStore later =
+                LatestVersionStore.load(path, TTL, clockAt(NOW.plus(Duration.ofMinutes(5))));
+        assertThat(later.get("repos", "a:a")).contains(Optional.of("1.0"));
+        assertThat(later.get("repos", "b:b")).isEmpty();
+    }
+
+    @Test
+    public void testFlushMergesConcurrentWrites() {
+        Path path = tempDir.resolve("latest-versions.bin");
+        LatestVersionStore first = LatestVersionStore.load(path, TTL, clockAt(NOW));
+        LatestVersionStore second = LatestVersionStore.load(path, TTL, clockAt(NOW));
+        first.put("repos", "a:a", Optional.of("1.0"));
+        second.put("repos", "b:b", Optional.of("2.0"));
+        first.flush();
+        second.flush();
+
+        LatestVersionStore reloaded = LatestVersionStore.load(path, TTL, clockAt(NOW));
+        assertThat(reloaded.get("repos", "a:a")).contains(Optional.of("1.0"));
+        assertThat(reloaded.get("repos", "b:b")).contains(Optional.of("2.0"));
+    }
+
+    @Test
+    public void testIgnoresUnreadableFile() throws IOException {
+        Path path = tempDir.resolve("latest-versions.bin");
+        Files.writeString(path, "not a cache");
+
+        assertThat(LatestVersionStore.load(path, TTL, clockAt(NOW)).get("repos", "a:a")).isEmpty();
+    }
+
+    @Test
+    public void testFailedFlushLeavesNoTemporaryFile() throws IOException {
+        // a non-empty directory cannot be replaced by the new cache file
+        Path path = tempDir.resolve("latest-versions.bin");
+        Files.createDirectories(path);
+        Files.writeString(path.resolve("file"), "");
+        LatestVersionStore store = LatestVersionStore.load(path, TTL, clockAt(NOW));
+        store.put("repos", "a:a", Optional.of("1.0"));
+        store.flush();
+
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertThat(files.map(file -> file.getFileName().toString()))
+                    .containsExactlyInAnyOrder("latest-versions.bin", "latest-versions.bin.lock");
+        }
+    }
+
+    private static Clock clockAt(Instant instant) {
+        return Clock.fixed(instant, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,145 @@
+package com.markelliot.gradle.versions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class MavenMetadataVersionsTests {
+    @TempDir Path repo1;
+    @TempDir Path repo2;
+
+    private final RepositoryRequests requests = new RepositoryRequests(1);
+
+    @AfterEach
+    public void after() {
+        requests.close();
+    }
+
+    @Test
+    public void testLatestVersionsAcrossRepositories() throws IOException {
+        metadata(repo1, "com.foo", "bar", "1.0", "1.1", "2.0-alpha1", "2.0-SNAPSHOT");
+        metadata(repo2, "com.foo", "bar", "1.0", "1.2");
+        metadata(repo2, "com.foo", "baz", "3.0-beta");
+        metadata(repo2, "com.foo.sub", "qux", "10.0", "9.0");
+
+        MavenMetadataVersions lookup =
+                new MavenMetadataVersions(
+                        List.of(repo1.toUri(), repo2.toUri()),
+                        Map.of(),
+                        Set.of("alpha", "beta"),
+                        requests);
+        assertThat(
+                        lookup.latestVersions(
+                                Set.of(
+                                        "com.foo:bar",
+                                        "com.foo:baz",
+                                        "com.foo.sub:qux",
+                                        "com.foo:missing")))
+                .containsExactlyInAnyOrderEntriesOf(
+                        Map.of(
+                                "com.foo:bar", Optional.of("1.2"),
+                                // listed, but without eligible versions
+                                "com.foo:baz", Optional.empty(),
+                                "com.foo.sub:qux", Optional.of("10.0")));
+    }
+
+    @Test
+    public void testModuleRepositories() throws IOException {
+        metadata(repo1, "com.foo", "bar", "1.0", "1.1");
+        metadata(repo2, "com.foo", "bar", "1.0", "1.2");
+        metadata(repo1, "com.foo", "baz", "2.0");
+        metadata(repo2, "com.foo", "baz", "2.1");
+
+        MavenMetadataVersions lookup =
+                new MavenMetadataVersions(
+                        List.of(repo1.toUri(), repo2.toUri()),
+                        Map.of("com.foo:bar", repo1.toUri()),
+                        Set.of(),
+                        requests);
+        assertThat(lookup.latestVersions(Set.of("com.foo:bar", "com.foo:baz")))
+                .containsExactlyInAnyOrderEntriesOf(
+                        Map.of(
+                                "com.foo:bar", Optional.of("1.1"),
+                                "com.foo:baz", Optional.of("2.1")));
+    }
+
+    @Test
+    public void testUnreadableMetadataIsNotDetermined() throws IOException {
+        metadata(repo1, "com.foo", "bar", "1.0");
+        Path metadata = repo2.resolve("com/foo/bar/maven-metadata.xml");
+        Files.createDirectories(metadata.getParent());
+        Files.writeString(metadata, "<metadata><versioning><versions><version>");
+
+        MavenMetadataVersions lookup =
+                new MavenMetadataVersions(
+                        List.of(repo1.toUri(), repo2.toUri()), Map.of(), Set.of(), requests);
+        assertThat(lookup.latestVersions(Set.of("com.foo:bar"))).isEmpty();
+    }
+
+    @Test
+    public void testCompare() {
+        List<String> ordered =
+                List.of(
+                        "1.0-dev",
+                        "1.0-alpha",
+                        "1.0-beta2",
+                        "1.0-beta10",
+                        "1.0-rc1",
+                        "1.0-final",
+                        "1.0",
+                        "1.0.1",
+                        "1.0.10",
+                        "1.1",
+                        "10.0");
+        for (int i = 0; i < ordered.size(); i++) {
+            for (int j = 0; j < ordered.size(); j++) {
+                assertThat(
+                                Integer.signum(
+                                        MavenMetadataVersions.compare(
+                                                ordered.get(i), ordered.get(j))))
+                        .as("%s vs %s", ordered.get(i), ordered.get(j))
+                        .isEqualTo(Integer.signum(Integer.compare(i, j)));
+            }
+        }
+        assertThat(MavenMetadataVersions.compare("1.0-1", "1.0.1")).isZero();
+    }
+
+    private static void metadata(Path repo, String group, String name, String... versions)
+            throws IOException {
+        Path file =
+                repo.resolve(group.replace('.', '/')).resolve(name).resolve("maven-metadata.xml");
+        Files.createDirectories(file.getParent());
+        Files.writeString(
+                file,
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                        + "<metadata>\n"
+                        + "  <groupId>"
+                        + group
+                        + "</groupId>\n"
+                        + "  <artifactId>"
+                        + name
+                        + "</artifactId>\n"
+                        + "  <versioning>\n"
+                        + "    <latest>"
+                        + versions[versions.length - 1]
+                        + "</latest>\n"
+                        + "    <versions>\n"
+                        + Arrays.stream(versions)
+                                .map(version -> "      <version>" + version + "</version>\n")
+                                .collect(Collectors.joining())
+                        + "    </versions>\n"
+                        + "  </versioning>\n"
+                        + "</metadata>\n");
+    }
+}
@@ -0,0 +1,111 @@
+package com.markelliot.gradle.versions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.markelliot.gradle.versions.api.DependencyUpdateRec;
+import com.markelliot.gradle.versions.api.ImmutableDependencyUpdateRec;
+import com.markelliot.gradle.versions.api.ImmutableUpdateReport;
+import com.markelliot.gradle.versions.api.UpdateReport;
+import com.markelliot.gradle.versions.api.YamlSerDe;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class ReportAggregatorTests {
+    @TempDir Path tempDir;
+
+    @Test
+    public void testMergesDependencyUpdates() {
+        List<File> reports =
+                List.of(
+                        report(
+                                "a",
+                                UpdateReport.builder()
+                                        .addDependencyUpdates(rec("com.foo", "bar", "1.0"))
+                                        .addDependencyUpdates(rec("com.foo", "baz", "2.0"))
+                                        .addDependencyUpdates(rec("com.foo", "qux", "3.0"))),
+                        report(
+                                "b",
+                                UpdateReport.builder()
+                                        .addDependencyUpdates(rec("com.foo", "bar", "1.0"))
+                                        .addDependencyUpdates(rec("com.foo", "baz", "2.1"))
+                                        .addPluginUpdates(rec("com.foo", "plugin", "4.0"))),
+                        report(
+                                "c",
+                                UpdateReport.builder()
+                                        .addDependencyUpdates(rec("com.foo", "baz", "2.0"))),
+                        report("d", UpdateReport.builder()));
+
+        assertThat(ReportAggregator.dependencyUpdates(reports))
+                .isEqualTo(Map.of("com.foo:bar", "1.0", "com.foo:qux", "3.0"));
+    }
+
+    @Test
+    public void testMergesPluginMarkerUpdates() {
+        List<File> reports =
+                List.of(
+                        report(
+                                "a",
+                                UpdateReport.builder()
+                                        .addDependencyUpdates(rec("com.foo", "bar", "1.0"))
+                                        .addPluginUpdates(
+                                                rec(
+                                                        "com.foo.plugin",
+                                                        "com.foo.plugin.gradle.plugin",
+                                                        "1.2"))
+                                        .addPluginUpdates(rec("com.foo", "not-a-marker", "2.0"))));
+
+        assertThat(ReportAggregator.pluginUpdates(reports))
+                .isEqualTo(Map.of("com.foo.plugin", "1.2"));
+    }
+
+    @Test
+    public void testReadsBinaryAndYamlReports() {
+        UpdateReport binaryReport =
+                UpdateReport.builder()
+                        .project(":binary")
+                        .addDependencyUpdates(rec("com.foo", "bar", "1.0"))
+                        .addDependencyUpdates(
+                                ImmutableDependencyUpdateRec.builder()
+                                        .group("com.foo")
+                                        .name("baz")
+                                        .latestVersion("2.0")
+                                        .build())
+                        .addPluginUpdates(
+                                rec("com.foo.plugin", "com.foo.plugin.gradle.plugin", "1.2"))
+                        .build();
+        File binaryFile = tempDir.resolve("binary.bin").toFile();
+        BinaryReports.write(binaryFile, binaryReport);
+        List<File> reports =
+                List.of(
+                        binaryFile,
+                        report(
+                                "yaml",
+                                UpdateReport.builder()
+                                        .addDependencyUpdates(rec("com.foo", "qux", "3.0"))));
+
+        assertThat(ReportAggregator.dependencyUpdates(reports))
+                .isEqualTo(
+                        Map.of("com.foo:bar", "1.0", "com.foo:baz", "2.0", "com.foo:qux", "3.0"));
+        assertThat(ReportAggregator.pluginUpdates(reports))
+                .isEqualTo(Map.of("com.foo.plugin", "1.2"));
+    }
+
+    private File report(String project, ImmutableUpdateReport.Builder builder) {
+        File file = tempDir.resolve(project + ".yml").toFile();
+        YamlSerDe.serialize(file, builder.project(":" + project).build());
+        return file;
+    }
+
+    private static DependencyUpdateRec rec(String group, String name, String latestVersion) {
+        return ImmutableDependencyUpdateRec.builder()
+                .group(group)
+                .name(name)
+                .currentVersion("0.1")
+                .latestVersion(latestVersion)
+                .build();
+    }
+}
@@ -0,0 +1,83 @@
+package com.markelliot.gradle.versions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.markelliot.gradle.versions.api.ReportEntry;
+import com.markelliot.gradle.versions.api.ReportSection;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class ReportsTests {
+    private static final List<ReportSection> SECTIONS =
+            List.of(
+                    ReportSection.builder()
+                            .title("Updated Dependencies")
+                            .addEntries(
+                                    ReportEntry.builder()
+                                            .name("com.foo:bar")
+                                            .oldVersion("1.0")
+                                            .newVersion("2.0")
+                                            .build())
+                            .build(),
+                    ReportSection.builder()
+                            .title("Updated Gradle Plugins")
+                            .addEntries(
+                                    ReportEntry.builder()
+                                            .name("com.foo.plugin")
+                                            .newVersion("3.0")
+                                            .build())
+                            .build());
+
+    @Test
+    public void testRenderMarkdown() {
+        assertThat(Reports.renderMarkdown(SECTIONS))
+                .isEqualTo(
+                        "## Updated Dependencies\n"
+                                + " * `com.foo:bar 1.0 -> 2.0`\n"
+                                + "\n"
+                                + "## Updated Gradle Plugins\n"
+                                + " * `com.foo.plugin {-> 3.0}`\n"
+                                + "\n");
+    }
+
+    @Test
+    public void testAppendToMarkdownReport(@TempDir Path tempDir) throws Exception {
+        File buildDir = tempDir.toFile();
+        Reports.appendToMarkdownReport(buildDir, SECTIONS.subList(0, 1));
+        Reports.appendToMarkdownReport(buildDir, SECTIONS.subList(1, 2));
+
+        Path reportDir = tempDir.resolve("com.markelliot.versions");
+        assertThat(reportDir.resolve("report.md")).hasContent(Reports.renderMarkdown(SECTIONS));
+        assertThat(Files.readString(reportDir.resolve("report.json")))
+                .contains("\"title\":\"Updated Dependencies\"")
+                .contains("\"title\":\"Updated Gradle Plugins\"")
+                .contains("\"name\":\"com.foo.plugin\"");
+        try (Stream<Path> files = Files.list(reportDir)) {
+            assertThat(files).hasSize(2);
+        }
+
+        Reports.clearMarkdownReport(buildDir);
+        Reports.appendToMarkdownReport(buildDir, SECTIONS.subList(1, 2));
+        assertThat(reportDir.resolve("report.md"))
+                .hasContent(Reports.renderMarkdown(SECTIONS.subList(1, 2)));
+    }
+
+    @Test
+    public void testAppendToMarkdownReportWithoutJson(@TempDir Path tempDir) throws Exception {
+        Path reportDir = tempDir.resolve("com.markelliot.versions");
+        Files.createDirectories(reportDir);
+        Files.writeString(reportDir.resolve("report.md"), "## Earlier Updates\n\n");
+
+        Reports.appendToMarkdownReport(tempDir.toFile(), SECTIONS);
+
+        assertThat(reportDir.resolve("report.md"))
+                .hasContent("## Earlier Updates\n\n" + Reports.renderMarkdown(SECTIONS));
+        assertThat(Files.readString(reportDir.resolve("report.json")))
+                .doesNotContain("Earlier Updates");
+    }
+}
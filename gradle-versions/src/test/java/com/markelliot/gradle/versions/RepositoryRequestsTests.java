@@ -0,0 +1,84 @@
+package com.markelliot.gradle.versions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+final class RepositoryRequestsTests {
+    @Test
+    public void testLimitsConcurrentRequestsPerHost() {
+        ConcurrentMap<String, AtomicInteger> running = new ConcurrentHashMap<>();
+        ConcurrentMap<String, AtomicInteger> maxRunning = new ConcurrentHashMap<>();
+        try (RepositoryRequests requests = new RepositoryRequests(2)) {
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                for (String host : List.of("repo1.example.com", "repo2.example.com")) {
+                    futures.add(
+                            requests.submit(
+                                    URI.create("https://" + host + "/maven-metadata.xml"),
+                                    () -> {
+                                        int now =
+                                                running.computeIfAbsent(
+                                                                host, unused -> new AtomicInteger())
+                                                        .incrementAndGet();
+                                        maxRunning
+                                                .computeIfAbsent(
+                                                        host, unused -> new AtomicInteger())
+                                                .accumulateAndGet(now, Math::max);
+                                        Thread.sleep(5);
+                                        running.get(host).decrementAndGet();
+                                        return host;
+                                    }));
+                }
+            }
+            futures.forEach(CompletableFuture::join);
+        }
+        assertThat(maxRunning).containsOnlyKeys("repo1.example.com", "repo2.example.com");
+        maxRunning.values().forEach(max -> assertThat(max.get()).isBetween(1, 2));
+    }
+
+    @Test
+    public void testHostsDoNotSharePlatformThreads() {
+        CountDownLatch release = new CountDownLatch(1);
+        try (RepositoryRequests requests =
+                new RepositoryRequests(1, () -> RepositoryRequests.newPlatformExecutor(1))) {
+            CompletableFuture<String> blocked =
+                    requests.submit(
+                            URI.create("https://repo1.example.com/maven-metadata.xml"),
+                            () -> {
+                                release.await();
+                                return "repo1";
+                            });
+            CompletableFuture<String> other =
+                    requests.submit(
+                            URI.create("https://repo2.example.com/maven-metadata.xml"),
+                            () -> "repo2");
+            assertThat(other).succeedsWithin(Duration.ofSeconds(10)).isEqualTo("repo2");
+            release.countDown();
+            assertThat(blocked).succeedsWithin(Duration.ofSeconds(10)).isEqualTo("repo1");
+        }
+    }
+
+    @Test
+    public void testPropagatesFailures() {
+        try (RepositoryRequests requests = new RepositoryRequests(1)) {
+            CompletableFuture<String> future =
+                    requests.submit(
+                            URI.create("file:///tmp/maven-metadata.xml"),
+                            () -> {
+                                throw new IOException("boom");
+                            });
+            assertThat(future).failsWithin(Duration.ofSeconds(10));
+        }
+    }
+}
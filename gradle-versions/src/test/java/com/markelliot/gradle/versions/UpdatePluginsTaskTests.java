@@ -1,8 +1,10 @@
 package com.markelliot.gradle.versions;
 
 import static com.markelliot.gradle.versions.UpdatePluginsTask.applyUpdate;
+import static com.markelliot.gradle.versions.UpdatePluginsTask.applyUpdates;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.Map;
 import org.junit.jupiter.api.Test;
 
 final class UpdatePluginsTaskTests {
@@ -33,4 +35,33 @@ final class UpdatePluginsTaskTests {
         assertThat(applyUpdate("id 'com.foo.baz' version '0.1.0'", "com.foo.bar", "0.2.0"))
                 .isEqualTo("id 'com.foo.baz' version '0.1.0'");
     }
+
+    @Test
+    public void testApplyUpdates() {
+        String content =
+                "plugins {\n"
+                        + "    id 'com.foo.bar' version '0.1.0'\n"
+                        + "    id(\"com.foo.baz\") version \"0.1.0\"\n"
+                        + "    id 'com.foo.qux' version '0.1.0'\n"
+                        + "    id 'com.foo.nover'\n"
+                        + "}\n"
+                        + "def valid = 'com.foo.bar'\n";
+
+        assertThat(
+                        applyUpdates(
+                                content,
+                                Map.of(
+                                        "com.foo.bar", "0.2.0",
+                                        "com.foo.baz", "0.3.0",
+                                        "com.foo.nover", "0.4.0")))
+                .isEqualTo(
+                        "plugins {\n"
+                                + "    id 'com.foo.bar' version '0.2.0'\n"
+                                + "    id(\"com.foo.baz\") version \"0.3.0\"\n"
+                                + "    id 'com.foo.qux' version '0.1.0'\n"
+                                + "    id 'com.foo.nover'\n"
+                                + "}\n"
+                                + "def valid = 'com.foo.bar'\n");
+        assertThat(applyUpdates(content, Map.of("com.other", "1.0"))).isSameAs(content);
+    }
 }
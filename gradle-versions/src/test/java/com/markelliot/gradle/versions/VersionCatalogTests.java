@@ -0,0 +1,178 @@
+/*
+ * (c) Copyright 2021 Mark Elliot. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.markelliot.gradle.versions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.markelliot.gradle.versions.catalog.VersionCatalog;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+final class VersionCatalogTests {
+    private static final String CATALOG =
+            "[versions]\n"
+                    + "foo = \"1.0\" # shared\n"
+                    + "bar = '2.0'\n"
+                    + "\n"
+                    + "[plugins]\n"
+                    + "# comment\n"
+                    + "inline = { id = \"com.example.inline\", version = \"0.1\" }\n"
+                    + "notation = \"com.example.notation:0.1\"\n"
+                    + "foo-a = { id = \"com.example.foo.a\", version.ref = \"foo\" }\n"
+                    + "foo-b = { id = \"com.example.foo.b\", version = { ref = \"foo\" } }\n"
+                    + "bar = {id='com.example.bar',version.ref='bar'}\n"
+                    + "rich = { id = \"com.example.rich\", version = { strictly = \"0.1\" } }\n";
+
+    @Test
+    public void testUpdatePlugins() {
+        VersionCatalog catalog = VersionCatalog.from(CATALOG);
+
+        VersionCatalog.UpdateResult result =
+                catalog.updatePlugins(
+                        Map.of(
+                                "com.example.inline", "0.2",
+                                "com.example.notation", "0.3",
+                                "com.example.foo.a", "1.1",
+                                "com.example.foo.b", "1.1",
+                                "com.example.bar", "2.0",
+                                "com.example.rich", "0.4"),
+                        Map.of());
+
+        assertThat(result.updated())
+                .extracting(VersionCatalog.UpdatedVersion::key)
+                .containsExactlyInAnyOrder(
+                        "com.example.inline", "com.example.notation", "versions.foo");
+        assertThat(result.conflicts()).isEmpty();
+        assertThat(catalog.writeToString())
+                .isEqualTo(
+                        CATALOG.replace("foo = \"1.0\"", "foo = \"1.1\"")
+                                .replace("version = \"0.1\" }", "version = \"0.2\" }")
+                                .replace("notation:0.1", "notation:0.3"));
+    }
+
+    @Test
+    public void testConflictingSharedVersion() {
+        VersionCatalog catalog = VersionCatalog.from(CATALOG);
+
+        VersionCatalog.UpdateResult result =
+                catalog.updatePlugins(
+                        Map.of("com.example.foo.a", "1.1", "com.example.foo.b", "1.2"), Map.of());
+
+        assertThat(result.updated()).isEmpty();
+        assertThat(result.conflicts()).hasSize(1);
+        assertThat(result.conflicts().get(0).versionRef()).isEqualTo("foo");
+        assertThat(catalog.writeToString()).isEqualTo(CATALOG);
+    }
+
+    @Test
+    public void testVersionSharedByLibrariesAndPlugins() {
+        String content =
+                "[versions]\n"
+                        + "kotlin = \"1.8.0\"\n"
+                        + "serialization = \"1.5.0\"\n"
+                        + "\n"
+                        + "[libraries]\n"
+                        + "kotlin-stdlib = { module = \"org.jetbrains.kotlin:kotlin-stdlib\","
+                        + " version.ref = \"kotlin\" }\n"
+                        + "serialization = { module = \"org.example:serialization\","
+                        + " version.ref = \"serialization\" }\n"
+                        + "\n"
+                        + "[plugins]\n"
+                        + "kotlin-jvm = { id = \"org.jetbrains.kotlin.jvm\", version.ref = \"kotlin\" }\n"
+                        + "serialization = { id = \"org.example.serialization\","
+                        + " version.ref = \"serialization\" }\n";
+        Map<String, String> libraryUpdates =
+                Map.of(
+                        "org.jetbrains.kotlin:kotlin-stdlib", "1.9.0",
+                        "org.example:serialization", "1.6.0");
+        Map<String, String> pluginUpdates =
+                Map.of(
+                        "org.jetbrains.kotlin.jvm", "1.9.0",
+                        "org.example.serialization", "1.7.0");
+        VersionCatalog catalog = VersionCatalog.from(content);
+
+        VersionCatalog.UpdateResult libraries =
+                catalog.updateLibraries(libraryUpdates, pluginUpdates);
+        VersionCatalog.UpdateResult plugins = catalog.updatePlugins(pluginUpdates, libraryUpdates);
+
+        // the agreeing recommendations are applied once, by whichever update runs first
+        assertThat(libraries.updated())
+                .extracting(VersionCatalog.UpdatedVersion::key)
+                .containsExactly("versions.kotlin");
+        assertThat(plugins.updated()).isEmpty();
+        for (VersionCatalog.UpdateResult result : List.of(libraries, plugins)) {
+            assertThat(result.conflicts()).hasSize(1);
+            assertThat(result.conflicts().get(0).versionRef()).isEqualTo("serialization");
+            assertThat(result.conflicts().get(0).recommendations())
+                    .containsExactlyInAnyOrderEntriesOf(
+                            Map.of(
+                                    "org.example:serialization", "1.6.0",
+                                    "org.example.serialization", "1.7.0"));
+        }
+        assertThat(catalog.writeToString())
+                .isEqualTo(content.replace("kotlin = \"1.8.0\"", "kotlin = \"1.9.0\""));
+    }
+
+    @Test
+    public void testUpdateLibraries() {
+        String content =
+                "[versions]\n"
+                        + "jackson = \"2.12.1\"\n"
+                        + "\n"
+                        + "[libraries]\n"
+                        + "guava = \"com.google.guava:guava:30.0-jre\" # pinned\n"
+                        + "slf4j = { module = \"org.slf4j:slf4j-api\", version = \"1.7.30\" }\n"
+                        + "junit = { group = \"junit\", name = \"junit\", version = \"4.12\" }\n"
+                        + "jackson-core = { module = \"com.fasterxml.jackson.core:jackson-core\","
+                        + " version.ref = \"jackson\" }\n"
+                        + "jackson-databind = { module = \"com.fasterxml.jackson.core:jackson-databind\","
+                        + " version.ref = \"jackson\" }\n"
+                        + "unversioned = \"com.example:unversioned\"\n"
+                        + "\n"
+                        + "[bundles]\n"
+                        + "jackson = [\n"
+                        + "    \"jackson-core\",\n"
+                        + "    \"jackson-databind\",\n"
+                        + "]\n";
+        VersionCatalog catalog = VersionCatalog.from(content);
+
+        VersionCatalog.UpdateResult result =
+                catalog.updateLibraries(
+                        Map.of(
+                                "com.google.guava:guava", "31.1-jre",
+                                "org.slf4j:slf4j-api", "1.7.36",
+                                "junit:junit", "4.13.2",
+                                "com.fasterxml.jackson.core:jackson-core", "2.15.0",
+                                "com.example:unversioned", "1.0"),
+                        Map.of());
+
+        assertThat(result.updated())
+                .extracting(VersionCatalog.UpdatedVersion::key)
+                .containsExactlyInAnyOrder(
+                        "com.google.guava:guava",
+                        "org.slf4j:slf4j-api",
+                        "junit:junit",
+                        "versions.jackson");
+        assertThat(catalog.writeToString())
+                .isEqualTo(
+                        content.replace("2.12.1", "2.15.0")
+                                .replace("30.0-jre", "31.1-jre")
+                                .replace("1.7.30", "1.7.36")
+                                .replace("4.12", "4.13.2"));
+    }
+}
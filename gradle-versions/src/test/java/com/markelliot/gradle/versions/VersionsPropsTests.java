@@ -17,12 +17,18 @@
 package com.markelliot.gradle.versions;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import com.google.common.base.Splitter;
 import com.markelliot.gradle.versions.props.VersionsProps;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 final class VersionsPropsTests {
     @Test
@@ -46,6 +52,98 @@ final class VersionsPropsTests {
                 .contains("org.slf4j:slf4j-api = 1.7.26 # bar");
     }
 
+    @Test
+    public void testUpdatesPreserveLayout() {
+        VersionsProps props =
+                VersionsProps.from(
+                        List.of(
+                                "# comment",
+                                "com.foo:bar = 1.0",
+                                "",
+                                "com.foo:* = 2.0 # glob",
+                                "com.foo:bar = 3.0"));
+
+        props.update("com.foo:bar", "1.1");
+        props.update("com.foo:baz", "2.1");
+
+        assertThat(props.writeToString())
+                .isEqualTo(
+                        "# comment\n"
+                                + "com.foo:bar = 1.1\n"
+                                + "\n"
+                                + "com.foo:* = 2.1 # glob\n"
+                                + "com.foo:bar = 3.0\n");
+    }
+
+    @Test
+    public void testUpdateAll() {
+        VersionsProps props =
+                VersionsProps.from(
+                        List.of(
+                                "com.foo:* = 1.0",
+                                "com.bar:* = 1.0",
+                                "com.bar:special = 1.0",
+                                "com.baz:baz = 1.0"));
+
+        VersionsProps.UpdateResult result =
+                props.updateAll(
+                        Map.of(
+                                "com.foo:a", "2.0",
+                                "com.foo:b", "2.1",
+                                "com.bar:a", "3.0",
+                                "com.bar:b", "3.0",
+                                "com.bar:special", "3.1",
+                                "com.baz:baz", "1.0",
+                                "com.qux:qux", "4.0"));
+
+        assertThat(result.updated())
+                .extracting(VersionsProps.UpdatedLine::dependency)
+                .containsExactly("com.bar:*", "com.bar:special");
+        assertThat(result.conflicts()).hasSize(1);
+        assertThat(result.conflicts().get(0).pattern()).isEqualTo("com.foo:*");
+        assertThat(result.conflicts().get(0).recommendations())
+                .isEqualTo(Map.of("com.foo:a", "2.0", "com.foo:b", "2.1"));
+        assertThat(result.unmatched()).containsExactly("com.qux:qux");
+        assertThat(props.writeToString())
+                .isEqualTo(
+                        "com.foo:* = 1.0\n"
+                                + "com.bar:* = 3.0\n"
+                                + "com.bar:special = 3.1\n"
+                                + "com.baz:baz = 1.0\n");
+    }
+
+    @Test
+    public void testRewritePreservesUntouchedBytes(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("versions.props");
+        String content =
+                "# comment\r\n"
+                        + "com.foo:bar=1.0   # spaced\r\n"
+                        + "\t\r\n"
+                        + "com.foo:baz = 1.0\r\n"
+                        + "com.foo:qux  =  1.0";
+        Files.writeString(file, content);
+
+        VersionsProps props = VersionsProps.from(file);
+        props.update("com.foo:bar", "1.1");
+        props.update("com.foo:qux", "1.10");
+        props.to(file);
+
+        assertThat(Files.readString(file))
+                .isEqualTo(
+                        "# comment\r\n"
+                                + "com.foo:bar=1.1   # spaced\r\n"
+                                + "\t\r\n"
+                                + "com.foo:baz = 1.0\r\n"
+                                + "com.foo:qux  =  1.10");
+    }
+
+    @Test
+    public void testInvalidLine() {
+        assertThatThrownBy(() -> VersionsProps.from(List.of("com.foo:bar 1.0")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid version line 'com.foo:bar 1.0'");
+    }
+
     @Test
     public void testNoUpdateForSameValue() {
         VersionsProps props = VersionsProps.from(List.of("com.foo.bar:qux = 1.2"));